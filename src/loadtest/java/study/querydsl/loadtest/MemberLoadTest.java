@@ -0,0 +1,163 @@
+package study.querydsl.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * MemberController 부하 발생기. 로컬에서 띄운 앱(local 프로파일, H2 초기 데이터)에 요청을 보낸다.
+ *
+ * <pre>
+ * ./gradlew bootRun
+ * ./gradlew loadTest -Ploadtest.rate=200 -Ploadtest.duration=30 -Ploadtest.mix=v1:1,v2:2,v3:7
+ * </pre>
+ *
+ * 응답을 기다리지 않고 정해진 도착률(open-loop)로 보낸다.
+ * 지연시간은 실제 보낸 시각이 아니라 보냈어야 할 시각부터 재서, 서버가 밀릴때 지연이 가려지지 않게 한다.
+ */
+public class MemberLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = System.getProperty("loadtest.baseUrl", "http://localhost:8080");
+        int rate = Integer.getInteger("loadtest.rate", 100);
+        int durationSeconds = Integer.getInteger("loadtest.duration", 30);
+        int warmupSeconds = Integer.getInteger("loadtest.warmup", 5);
+        long seed = Long.getLong("loadtest.seed", 42L);
+        Map<String, Integer> mix = parseMix(System.getProperty("loadtest.mix", "v1:1,v2:2,v3:7"));
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        System.out.printf("target=%s rate=%d/s duration=%ds warmup=%ds mix=%s%n",
+                baseUrl, rate, durationSeconds, warmupSeconds, mix);
+        run(client, baseUrl, rate, warmupSeconds, mix, new Random(seed), null);
+        Map<String, Histogram> histograms = new LinkedHashMap<>();
+        mix.keySet().forEach(api -> histograms.put(api, new ConcurrentHistogram(TimeUnit.SECONDS.toMicros(60), 3)));
+        Result result = run(client, baseUrl, rate, durationSeconds, mix, new Random(seed), histograms);
+
+        report(result, histograms, durationSeconds);
+    }
+
+    private static Result run(HttpClient client, String baseUrl, int rate, int seconds,
+                              Map<String, Integer> mix, Random random, Map<String, Histogram> histograms)
+            throws InterruptedException {
+        long total = (long) rate * seconds;
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        List<String> weighted = weightedApis(mix);
+
+        Result result = new Result();
+        CountDownLatch done = new CountDownLatch((int) total);
+        long start = System.nanoTime();
+
+        for (long i = 0; i < total; i++) {
+            long intendedStart = start + i * intervalNanos;
+            long wait = intendedStart - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            String api = weighted.get(random.nextInt(weighted.size()));
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/" + api + "/members?" + randomQuery(api, random)))
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart);
+                        if (histograms != null) {
+                            histograms.get(api).recordValue(Math.min(latencyMicros, TimeUnit.SECONDS.toMicros(60)));
+                        }
+                        if (error != null || response.statusCode() >= 400) {
+                            result.errors.incrementAndGet();
+                        } else {
+                            result.completed.incrementAndGet();
+                        }
+                        done.countDown();
+                    });
+        }
+        done.await(60, TimeUnit.SECONDS);
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * MemberSearchCondition 과 Pageable 조합을 섞는다. 초기 데이터는 member0~99, teamA/teamB, age 0~99.
+     */
+    static String randomQuery(String api, Random random) {
+        List<String> params = new ArrayList<>();
+        if (random.nextInt(10) == 0) {
+            params.add("username=member" + random.nextInt(100));
+        }
+        if (random.nextBoolean()) {
+            params.add("teamName=" + (random.nextBoolean() ? "teamA" : "teamB"));
+        }
+        if (random.nextInt(3) == 0) {
+            int ageGoe = random.nextInt(80);
+            params.add("ageGoe=" + ageGoe);
+            if (random.nextBoolean()) {
+                params.add("ageLoe=" + (ageGoe + 1 + random.nextInt(20)));
+            }
+        }
+        if (!"v1".equals(api)) {
+            int[] sizes = {10, 20, 50};
+            params.add("page=" + random.nextInt(5));
+            params.add("size=" + sizes[random.nextInt(sizes.length)]);
+        }
+        return String.join("&", params);
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] pair = entry.trim().split(":");
+            weights.put(pair[0], pair.length > 1 ? Integer.parseInt(pair[1]) : 1);
+        }
+        return weights;
+    }
+
+    private static List<String> weightedApis(Map<String, Integer> mix) {
+        List<String> weighted = new ArrayList<>();
+        mix.forEach((api, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                weighted.add(api);
+            }
+        });
+        return weighted;
+    }
+
+    private static void report(Result result, Map<String, Histogram> histograms, int durationSeconds) {
+        double elapsedSeconds = result.elapsedNanos / 1e9;
+        System.out.printf("completed=%d errors=%d elapsed=%.1fs throughput=%.1f req/s (planned %ds)%n",
+                result.completed.get(), result.errors.get(), elapsedSeconds,
+                result.completed.get() / elapsedSeconds, durationSeconds);
+        System.out.printf("%-4s %8s %10s %10s %10s %10s (ms)%n", "api", "count", "p50", "p99", "p999", "max");
+        histograms.forEach((api, histogram) -> System.out.printf("%-4s %8d %10.2f %10.2f %10.2f %10.2f%n",
+                api, histogram.getTotalCount(),
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0));
+    }
+
+    static class Result {
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        long elapsedNanos;
+    }
+}
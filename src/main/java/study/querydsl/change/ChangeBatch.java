@@ -0,0 +1,91 @@
+package study.querydsl.change;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 한번에 전달되는 변경 묶음. 전달 스레드가 계속 재사용하므로 구독자는 콜백 안에서만 읽고 참조를 들고 있으면 안 된다.
+ * id 가 {@link ChangeEventBus#ALL_ROWS} 면 대상 row 를 모르는 벌크 변경이다.
+ * columns 는 엔티티 속성 순서의 비트마스크, {@link ChangeEventBus#ALL_COLUMNS} 는 insert/delete 처럼 전부 바뀐 경우.
+ * dropped 가 0 보다 크면 링이 가득 차서 그만큼 변경을 잃었으므로 구독자는 전부 바뀐 것으로 봐야 한다.
+ */
+public final class ChangeBatch {
+
+    private static final ChangeTable[] TABLES = ChangeTable.values();
+    private static final ChangeOp[] OPS = ChangeOp.values();
+
+    private final byte[] tables;
+    private final byte[] ops;
+    private final long[] ids;
+    private final long[] columns;
+    private final ChangeColumns changeColumns;
+    private int size;
+    private long dropped;
+
+    ChangeBatch(int capacity, ChangeColumns changeColumns) {
+        this.tables = new byte[capacity];
+        this.ops = new byte[capacity];
+        this.ids = new long[capacity];
+        this.columns = new long[capacity];
+        this.changeColumns = changeColumns;
+    }
+
+    void set(int index, byte table, byte op, long id, long changedColumns) {
+        tables[index] = table;
+        ops[index] = op;
+        ids[index] = id;
+        columns[index] = changedColumns;
+    }
+
+    void setSize(int size) {
+        this.size = size;
+    }
+
+    void setDropped(long dropped) {
+        this.dropped = dropped;
+    }
+
+    int capacity() {
+        return ids.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long dropped() {
+        return dropped;
+    }
+
+    public ChangeTable table(int index) {
+        return TABLES[tables[index]];
+    }
+
+    public ChangeOp op(int index) {
+        return OPS[ops[index]];
+    }
+
+    public long id(int index) {
+        return ids[index];
+    }
+
+    public long columns(int index) {
+        return columns[index];
+    }
+
+    public boolean changed(int index, String property) {
+        return (columns[index] & changeColumns.bit(table(index), property)) != 0;
+    }
+
+    //편의용 - 객체를 만든다.
+    public List<String> columnNames(int index) {
+        List<String> names = new ArrayList<>();
+        String[] properties = changeColumns.properties(table(index));
+        for (int i = 0; i < properties.length && i < Long.SIZE; i++) {
+            if ((columns[index] & (1L << i)) != 0) {
+                names.add(properties[i]);
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,78 @@
+package study.querydsl.change;
+
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * hibernate 엔티티 insert/update/delete 를 커밋 이후에 변경 이벤트로 넣는다. 롤백된 변경은 오지 않는다.
+ * update 는 dirty 속성 인덱스를 비트로 옮긴다. (dirty 정보가 없으면 전부)
+ */
+class ChangeCaptureListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+        PostCommitDeleteEventListener {
+
+    private final ChangeEventBus changeEventBus;
+
+    ChangeCaptureListener(ChangeEventBus changeEventBus) {
+        this.changeEventBus = changeEventBus;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        ChangeTable table = ChangeTable.of(event.getPersister().getMappedClass());
+        if (table != null) {
+            changeEventBus.publish(table, ChangeOp.INSERT, (Long) event.getId(), ChangeEventBus.ALL_COLUMNS);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        ChangeTable table = ChangeTable.of(event.getPersister().getMappedClass());
+        if (table != null) {
+            changeEventBus.publish(table, ChangeOp.UPDATE, (Long) event.getId(), columns(event.getDirtyProperties()));
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        ChangeTable table = ChangeTable.of(event.getPersister().getMappedClass());
+        if (table != null) {
+            changeEventBus.publish(table, ChangeOp.DELETE, (Long) event.getId(), ChangeEventBus.ALL_COLUMNS);
+        }
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return ChangeTable.of(persister.getMappedClass()) != null;
+    }
+
+    private static long columns(int[] dirtyProperties) {
+        if (dirtyProperties == null) {
+            return ChangeEventBus.ALL_COLUMNS;
+        }
+        long columns = 0;
+        for (int index : dirtyProperties) {
+            if (index >= Long.SIZE) {
+                return ChangeEventBus.ALL_COLUMNS;
+            }
+            columns |= 1L << index;
+        }
+        return columns;
+    }
+}
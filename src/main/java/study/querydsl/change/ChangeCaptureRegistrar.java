@@ -0,0 +1,42 @@
+package study.querydsl.change;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * EntityManagerFactory 가 만들어진 뒤 hibernate 이벤트 레지스트리에 {@link ChangeCaptureListener} 를 붙이고
+ * 엔티티 속성 순서를 {@link ChangeEventBus} 에 알려준다.
+ */
+@Component
+public class ChangeCaptureRegistrar {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final ChangeEventBus changeEventBus;
+
+    public ChangeCaptureRegistrar(EntityManagerFactory entityManagerFactory, ChangeEventBus changeEventBus) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.changeEventBus = changeEventBus;
+    }
+
+    @PostConstruct
+    public void register() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        changeEventBus.registerProperties(ChangeTable.MEMBER,
+                sessionFactory.getMetamodel().entityPersister(Member.class).getPropertyNames());
+        changeEventBus.registerProperties(ChangeTable.TEAM,
+                sessionFactory.getMetamodel().entityPersister(Team.class).getPropertyNames());
+
+        ChangeCaptureListener listener = new ChangeCaptureListener(changeEventBus);
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+    }
+}
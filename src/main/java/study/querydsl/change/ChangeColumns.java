@@ -0,0 +1,32 @@
+package study.querydsl.change;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 엔티티 속성 이름 <-> 비트 위치. hibernate EntityPersister 의 속성 순서를 그대로 쓴다.
+ * 그래야 update 이벤트의 dirty 속성 인덱스를 그대로 비트로 옮길 수 있다.
+ */
+final class ChangeColumns {
+
+    private final Map<ChangeTable, String[]> properties = new ConcurrentHashMap<>();
+
+    void register(ChangeTable table, String[] propertyNames) {
+        properties.put(table, propertyNames.clone());
+    }
+
+    String[] properties(ChangeTable table) {
+        return properties.getOrDefault(table, new String[0]);
+    }
+
+    //모르는 속성이면 0. 64 번째 이후 속성은 구분하지 않고 전부로 본다.
+    long bit(ChangeTable table, String property) {
+        String[] names = properties(table);
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(property)) {
+                return i < Long.SIZE ? 1L << i : ChangeEventBus.ALL_COLUMNS;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,170 @@
+package study.querydsl.change;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Member / Team 변경 이벤트 스트림.
+ * - 엔티티 단위 변경은 hibernate post-commit 리스너({@link ChangeCaptureListener})가 커밋 이후에 넣는다.
+ * - 벌크 update/delete, jdbc 직접 쓰기는 {@link #publishAfterCommit} 으로 커밋 이후에 넣는다.
+ * 이벤트는 링 버퍼에 쌓이고 전달 스레드 하나가 batch 단위로 구독자에게 넘긴다.
+ * 전달 스레드는 할 일이 없으면 poll-micros 부터 두배씩 max-park-millis 까지 늘려가며 쉬고,
+ * 쉬는 중에 변경이 들어오면 넣은 쪽이 깨운다. (쓰기가 없을 때 계속 깨어나지 않는다)
+ * {@link #publish} 는 쓰기 스레드에서 객체를 만들지 않는다.
+ */
+@Slf4j
+@Component
+public class ChangeEventBus {
+
+    //대상 row 를 모르는 벌크 변경
+    public static final long ALL_ROWS = -1L;
+    public static final long ALL_COLUMNS = -1L;
+
+    private final ChangeEventRing ring;
+    private final ChangeColumns changeColumns = new ChangeColumns();
+    private final ChangeBatch batch;
+    private final long pollNanos;
+    private final long maxParkNanos;
+    private final List<Consumer<ChangeBatch>> subscribers = new CopyOnWriteArrayList<>();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+    //전달 스레드가 쉬러 들어갔으면 true. publish 가 보고 깨운다.
+    private volatile boolean idle;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder droppedTotal = new LongAdder();
+
+    public ChangeEventBus(@Value("${study.change-events.capacity:8192}") int capacity,
+                          @Value("${study.change-events.batch-size:256}") int batchSize,
+                          @Value("${study.change-events.poll-micros:1000}") long pollMicros,
+                          @Value("${study.change-events.max-park-millis:50}") long maxParkMillis) {
+        this.ring = new ChangeEventRing(capacity);
+        this.batch = new ChangeBatch(batchSize, changeColumns);
+        this.pollNanos = TimeUnit.MICROSECONDS.toNanos(pollMicros);
+        this.maxParkNanos = Math.max(pollNanos, TimeUnit.MILLISECONDS.toNanos(maxParkMillis));
+        this.dispatcher = new Thread(this::dispatchLoop, "change-event-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * 커밋된 변경을 넣는다. 링이 가득 차면 버리고 false. (다음 batch 의 dropped 로 알려준다)
+     */
+    public boolean publish(ChangeTable table, ChangeOp op, long id, long columns) {
+        boolean offered = ring.offer(table, op, id, columns);
+        if (idle) {
+            idle = false;
+            LockSupport.unpark(dispatcher);
+        }
+        return offered;
+    }
+
+    //트랜잭션 안이면 커밋된 뒤에, 밖이면 바로 넣는다. 롤백되면 넣지 않는다.
+    public void publishAfterCommit(ChangeTable table, ChangeOp op, long id, long columns) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(table, op, id, columns);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(table, op, id, columns);
+            }
+        });
+    }
+
+    public long columnsOf(ChangeTable table, String... properties) {
+        long columns = 0;
+        for (String property : properties) {
+            columns |= changeColumns.bit(table, property);
+        }
+        return columns;
+    }
+
+    public void subscribe(Consumer<ChangeBatch> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(Consumer<ChangeBatch> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    void registerProperties(ChangeTable table, String[] propertyNames) {
+        changeColumns.register(table, propertyNames);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("capacity", ring.capacity());
+        stats.put("pending", ring.pending());
+        stats.put("batches", batches.sum());
+        stats.put("delivered", delivered.sum());
+        stats.put("dropped", droppedTotal.sum());
+        stats.put("subscribers", subscribers.size());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(dispatcher);
+        dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void dispatchLoop() {
+        long parkNanos = pollNanos;
+        while (running) {
+            if (dispatchOnce()) {
+                parkNanos = pollNanos;
+                continue;
+            }
+            idle = true;
+            //idle 을 알린 뒤 한번 더 봐야 그 사이 들어온(깨우지 않은) 변경을 놓치지 않는다.
+            if (dispatchOnce()) {
+                idle = false;
+                parkNanos = pollNanos;
+                continue;
+            }
+            LockSupport.parkNanos(this, parkNanos);
+            idle = false;
+            parkNanos = Math.min(parkNanos * 2, maxParkNanos);
+        }
+        //종료 전에 남은 변경을 넘긴다.
+        while (dispatchOnce()) {
+        }
+    }
+
+    private boolean dispatchOnce() {
+        int size = ring.drainTo(batch);
+        long dropped = ring.takeDropped();
+        if (size == 0 && dropped == 0) {
+            return false;
+        }
+        batch.setDropped(dropped);
+        for (Consumer<ChangeBatch> subscriber : subscribers) {
+            try {
+                subscriber.accept(batch);
+            } catch (RuntimeException e) {
+                log.warn("change event subscriber failed", e);
+            }
+        }
+        batches.increment();
+        delivered.add(size);
+        droppedTotal.add(dropped);
+        return true;
+    }
+}
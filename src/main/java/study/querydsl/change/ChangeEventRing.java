@@ -0,0 +1,95 @@
+package study.querydsl.change;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 미리 할당한 배열 위의 다중 생산자 / 단일 소비자 링 버퍼.
+ * 생산자는 CAS 로 순번을 받아 슬롯에 값을 쓰고 published 에 순번을 기록(release)한다. 락도 객체 생성도 없다.
+ * 소비자는 published 가 기대한 순번인 슬롯까지만 읽는다.
+ * 가득 차면 기다리지 않고 버린 뒤 건수만 센다. (쓰기 경로를 막지 않기 위해)
+ */
+final class ChangeEventRing {
+
+    private final int capacity;
+    private final int mask;
+    private final byte[] tables;
+    private final byte[] ops;
+    private final long[] ids;
+    private final long[] columns;
+    private final AtomicLongArray published;
+
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long consumed = -1;
+
+    ChangeEventRing(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity 는 2의 거듭제곱이어야 합니다: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.tables = new byte[capacity];
+        this.ops = new byte[capacity];
+        this.ids = new long[capacity];
+        this.columns = new long[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    boolean offer(ChangeTable table, ChangeOp op, long id, long changedColumns) {
+        long seq;
+        while (true) {
+            long current = claimed.get();
+            seq = current + 1;
+            if (seq - consumed > capacity) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            if (claimed.compareAndSet(current, seq)) {
+                break;
+            }
+        }
+        int slot = (int) (seq & mask);
+        tables[slot] = (byte) table.ordinal();
+        ops[slot] = (byte) op.ordinal();
+        ids[slot] = id;
+        columns[slot] = changedColumns;
+        published.lazySet(slot, seq);
+        return true;
+    }
+
+    //소비자 스레드 하나만 부른다. 읽은 슬롯은 batch 로 복사한 뒤 바로 비워준다.
+    int drainTo(ChangeBatch batch) {
+        long next = consumed + 1;
+        int count = 0;
+        while (count < batch.capacity()) {
+            int slot = (int) (next & mask);
+            if (published.get(slot) != next) {
+                break;
+            }
+            batch.set(count, tables[slot], ops[slot], ids[slot], columns[slot]);
+            next++;
+            count++;
+        }
+        if (count > 0) {
+            consumed = next - 1;
+        }
+        batch.setSize(count);
+        return count;
+    }
+
+    long takeDropped() {
+        return dropped.getAndSet(0);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    long pending() {
+        return claimed.get() - consumed;
+    }
+}
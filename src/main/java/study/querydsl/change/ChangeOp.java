@@ -0,0 +1,5 @@
+package study.querydsl.change;
+
+public enum ChangeOp {
+    INSERT, UPDATE, DELETE
+}
@@ -0,0 +1,18 @@
+package study.querydsl.change;
+
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+public enum ChangeTable {
+    MEMBER, TEAM;
+
+    static ChangeTable of(Class<?> type) {
+        if (Member.class.equals(type)) {
+            return MEMBER;
+        }
+        if (Team.class.equals(type)) {
+            return TEAM;
+        }
+        return null;
+    }
+}
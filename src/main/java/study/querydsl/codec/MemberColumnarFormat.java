@@ -0,0 +1,95 @@
+package study.querydsl.codec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MemberTeamDto 목록용 컬럼 기반 바이너리 포맷 (application/x-member-columnar).
+ *
+ * <pre>
+ * header : 'M' 'C' version(1) flags(1)
+ *          [flags & PAGED]  varint pageNumber, varint pageSize
+ *          [flags & TOTAL]  varint totalElements
+ *          (flags & HAS_NEXT 은 값 없이 비트만)
+ * block  : varint rowCount (0 이면 끝)
+ *          memberId 컬럼  : 이전 id 와의 차이를 zigzag varint (null 불가)
+ *          username 컬럼  : varint (길이 + 1, null 이면 0) + UTF-8
+ *          age 컬럼       : zigzag varint
+ *          teamId 컬럼    : varint (null 이면 0, 아니면 zigzag + 1)
+ *          teamName 컬럼  : varint 사전 코드 (0 = null, 1..n = 기존 항목, n+1 = 새 항목이고 뒤에 문자열)
+ * </pre>
+ * 블록 단위로 끊어 쓰므로 전체를 다 만들기 전에 보내기 시작할 수 있고, 사전은 블록을 넘어 이어진다.
+ */
+public final class MemberColumnarFormat {
+
+    public static final String MEDIA_TYPE = "application/x-member-columnar";
+
+    static final byte MAGIC_0 = 'M';
+    static final byte MAGIC_1 = 'C';
+    static final byte VERSION = 1;
+
+    static final int FLAG_PAGED = 1;
+    static final int FLAG_TOTAL = 1 << 1;
+    static final int FLAG_HAS_NEXT = 1 << 2;
+
+    static final int BLOCK_SIZE = 512;
+
+    private MemberColumnarFormat() {
+    }
+
+    static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(InputStream in) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void writeString(OutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes);
+    }
+
+    static String readString(InputStream in) throws IOException {
+        int length = (int) readVarLong(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = in.readNBytes(length - 1);
+        if (bytes.length != length - 1) {
+            throw new EOFException();
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,91 @@
+package study.querydsl.codec;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Accept: application/x-member-columnar 로 요청하면 MemberTeamDto 목록(List/Page/Slice)을 컬럼 포맷으로 쓴다.
+ * 블록마다 flush 하므로 chunked 로 흘려보낸다. 쓰기 전용.
+ */
+public class MemberColumnarHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MemberColumnarFormat.MEDIA_TYPE);
+
+    public MemberColumnarHttpMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Iterable.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        if (!canWrite(mediaType)) {
+            return false;
+        }
+        ResolvableType iterable = ResolvableType.forType(type != null ? type : clazz).as(Iterable.class);
+        return iterable != ResolvableType.NONE && MemberTeamDto.class.equals(iterable.getGeneric(0).resolve());
+    }
+
+    @Override
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+        OutputStream out = new BufferedOutputStream(outputMessage.getBody());
+        MemberColumnarWriter writer = new MemberColumnarWriter(out);
+
+        if (value instanceof Slice) {
+            Slice<?> slice = (Slice<?>) value;
+            Long total = value instanceof Page ? ((Page<?>) value).getTotalElements() : null;
+            writer.writeHeader(slice.getPageable().isPaged(), slice.getNumber(), slice.getSize(), total, slice.hasNext());
+        } else {
+            writer.writeHeader(false, 0, 0, null, false);
+        }
+
+        List<MemberTeamDto> block = new ArrayList<>(MemberColumnarFormat.BLOCK_SIZE);
+        for (Object row : (Iterable<?>) value) {
+            block.add((MemberTeamDto) row);
+            if (block.size() == MemberColumnarFormat.BLOCK_SIZE) {
+                writer.writeBlock(block);
+                out.flush();
+                block.clear();
+            }
+        }
+        writer.writeBlock(block);
+        writer.finish();
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("member columnar format is write only", inputMessage);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("member columnar format is write only", inputMessage);
+    }
+}
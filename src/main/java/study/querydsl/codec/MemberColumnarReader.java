@@ -0,0 +1,107 @@
+package study.querydsl.codec;
+
+import lombok.Getter;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static study.querydsl.codec.MemberColumnarFormat.*;
+
+/**
+ * application/x-member-columnar 응답을 읽는 클라이언트용 디코더.
+ * 블록 단위로 읽으므로 응답을 다 받기 전에 앞쪽 행부터 처리할 수 있다.
+ */
+public class MemberColumnarReader {
+
+    private final InputStream in;
+    private final List<String> dictionary = new ArrayList<>();
+    private long lastMemberId;
+
+    @Getter private boolean paged;
+    @Getter private int pageNumber;
+    @Getter private int pageSize;
+    @Getter private Long total;
+    @Getter private boolean hasNext;
+
+    public MemberColumnarReader(InputStream in) throws IOException {
+        this.in = in;
+        readHeader();
+    }
+
+    private void readHeader() throws IOException {
+        if (in.read() != MAGIC_0 || in.read() != MAGIC_1) {
+            throw new IOException("not a member columnar stream");
+        }
+        int version = in.read();
+        if (version != VERSION) {
+            throw new IOException("unsupported version " + version);
+        }
+        int flags = in.read();
+        paged = (flags & FLAG_PAGED) != 0;
+        hasNext = (flags & FLAG_HAS_NEXT) != 0;
+        if (paged) {
+            pageNumber = (int) readVarLong(in);
+            pageSize = (int) readVarLong(in);
+        }
+        if ((flags & FLAG_TOTAL) != 0) {
+            total = readVarLong(in);
+        }
+    }
+
+    /**
+     * 다음 블록을 읽는다. 더 이상 없으면 빈 목록.
+     */
+    public List<MemberTeamDto> nextBlock() throws IOException {
+        int rows = (int) readVarLong(in);
+        if (rows == 0) {
+            return List.of();
+        }
+
+        long[] memberIds = new long[rows];
+        String[] usernames = new String[rows];
+        int[] ages = new int[rows];
+        Long[] teamIds = new Long[rows];
+        for (int i = 0; i < rows; i++) {
+            lastMemberId += unzigzag(readVarLong(in));
+            memberIds[i] = lastMemberId;
+        }
+        for (int i = 0; i < rows; i++) {
+            usernames[i] = readString(in);
+        }
+        for (int i = 0; i < rows; i++) {
+            ages[i] = (int) unzigzag(readVarLong(in));
+        }
+        for (int i = 0; i < rows; i++) {
+            long teamId = readVarLong(in);
+            teamIds[i] = teamId == 0 ? null : unzigzag(teamId - 1);
+        }
+
+        List<MemberTeamDto> block = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            block.add(new MemberTeamDto(memberIds[i], usernames[i], ages[i], teamIds[i], readTeamName()));
+        }
+        return block;
+    }
+
+    private String readTeamName() throws IOException {
+        int code = (int) readVarLong(in);
+        if (code == 0) {
+            return null;
+        }
+        if (code == dictionary.size() + 1) {
+            dictionary.add(readString(in));
+        }
+        return dictionary.get(code - 1);
+    }
+
+    public List<MemberTeamDto> readAll() throws IOException {
+        List<MemberTeamDto> all = new ArrayList<>();
+        for (List<MemberTeamDto> block = nextBlock(); !block.isEmpty(); block = nextBlock()) {
+            all.addAll(block);
+        }
+        return all;
+    }
+}
@@ -0,0 +1,88 @@
+package study.querydsl.codec;
+
+import study.querydsl.dto.MemberTeamDto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static study.querydsl.codec.MemberColumnarFormat.*;
+
+public class MemberColumnarWriter {
+
+    private final OutputStream out;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private long lastMemberId;
+
+    public MemberColumnarWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    public void writeHeader(boolean paged, int pageNumber, int pageSize, Long total, boolean hasNext) throws IOException {
+        int flags = (paged ? FLAG_PAGED : 0) | (total != null ? FLAG_TOTAL : 0) | (hasNext ? FLAG_HAS_NEXT : 0);
+        out.write(MAGIC_0);
+        out.write(MAGIC_1);
+        out.write(VERSION);
+        out.write(flags);
+        if (paged) {
+            writeVarLong(out, pageNumber);
+            writeVarLong(out, pageSize);
+        }
+        if (total != null) {
+            writeVarLong(out, total);
+        }
+    }
+
+    public void writeBlock(List<MemberTeamDto> rows) throws IOException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        //memberId 컬럼은 null 을 표현하지 않는다. 블록을 쓰기 전에 확인해서 중간까지 쓴 블록이 남지 않게 한다.
+        for (MemberTeamDto row : rows) {
+            if (row.getMemberId() == null) {
+                throw new IllegalArgumentException("memberId 가 없는 행은 인코딩할 수 없습니다: " + row);
+            }
+        }
+        writeVarLong(out, rows.size());
+        for (MemberTeamDto row : rows) {
+            long memberId = row.getMemberId();
+            writeVarLong(out, zigzag(memberId - lastMemberId));
+            lastMemberId = memberId;
+        }
+        for (MemberTeamDto row : rows) {
+            writeString(out, row.getUsername());
+        }
+        for (MemberTeamDto row : rows) {
+            writeVarLong(out, zigzag(row.getAge()));
+        }
+        for (MemberTeamDto row : rows) {
+            writeVarLong(out, row.getTeamId() == null ? 0 : zigzag(row.getTeamId()) + 1);
+        }
+        for (MemberTeamDto row : rows) {
+            writeTeamName(row.getTeamName());
+        }
+    }
+
+    private void writeTeamName(String teamName) throws IOException {
+        if (teamName == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        Integer code = dictionary.get(teamName);
+        if (code != null) {
+            writeVarLong(out, code);
+            return;
+        }
+        int newCode = dictionary.size() + 1;
+        dictionary.put(teamName, newCode);
+        writeVarLong(out, newCode);
+        writeString(out, teamName);
+    }
+
+    public void finish() throws IOException {
+        writeVarLong(out, 0);
+        out.flush();
+    }
+}
@@ -0,0 +1,66 @@
+package study.querydsl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.servlet.HandlerInterceptor;
+import study.querydsl.change.ChangeCaptureRegistrar;
+import study.querydsl.repository.ShardSynchronizer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * fast 프로파일(spring.main.lazy-initialization=true) 에서 쓰는 설정.
+ * 웹 계층과 스케줄 작업이 있는 빈은 lazy 대상에서 빼고, 나머지 빈은 처음 쓰일때 만든다.
+ * 변경 구독자(ShardSynchronizer)도 기동 중 커밋을 놓치지 않도록 미리 만든다.
+ */
+@Slf4j
+@Configuration
+public class FastStartupConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter webAndScheduledBeans() {
+        return (beanName, beanDefinition, beanType) ->
+                AnnotatedElementUtils.hasAnnotation(beanType, Controller.class)
+                        || WebMvcConfigurer.class.isAssignableFrom(beanType)
+                        || HandlerInterceptor.class.isAssignableFrom(beanType)
+                        || ChangeCaptureRegistrar.class.isAssignableFrom(beanType)
+                        || ShardSynchronizer.class.isAssignableFrom(beanType)
+                        || hasScheduledMethod(beanType);
+    }
+
+    private static boolean hasScheduledMethod(Class<?> beanType) {
+        AtomicBoolean found = new AtomicBoolean();
+        ReflectionUtils.doWithMethods(beanType,
+                method -> found.set(true),
+                method -> AnnotatedElementUtils.hasAnnotation(method, Scheduled.class));
+        return found.get();
+    }
+
+    @Bean
+    ApplicationListener<ApplicationReadyEvent> startupTimeLogger() {
+        return event -> log.info("ready in {}ms (jvm uptime {}ms)",
+                event.getTimeTaken() != null ? event.getTimeTaken().toMillis() : -1,
+                ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    /**
+     * CDS 아카이브를 만들때(./gradlew cdsArchive) 기동만 하고 바로 종료하기 위함.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "study.startup", name = "exit-after-ready", havingValue = "true")
+    ApplicationListener<ApplicationReadyEvent> exitAfterReady() {
+        return event -> System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
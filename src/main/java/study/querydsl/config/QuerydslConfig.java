@@ -1,8 +1,13 @@
 package study.querydsl.config;
 
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import study.querydsl.change.ChangeEventBus;
+import study.querydsl.repository.MemberCountCache;
+import study.querydsl.repository.MemberCountEstimator;
+import study.querydsl.repository.TableVersions;
 
 import javax.persistence.EntityManager;
 
@@ -10,7 +15,9 @@ import javax.persistence.EntityManager;
 public class QuerydslConfig {
 
     @Bean
-    JPAQueryFactory jpaQueryFactory(EntityManager em) {
-        return new JPAQueryFactory(em);
+    JPAQueryFactory jpaQueryFactory(EntityManager em, TableVersions tableVersions, ChangeEventBus changeEventBus,
+                                    ObjectProvider<MemberCountCache> memberCountCache,
+                                    ObjectProvider<MemberCountEstimator> memberCountEstimator) {
+        return new VersionedJPAQueryFactory(em, tableVersions, changeEventBus, memberCountCache, memberCountEstimator);
     }
 }
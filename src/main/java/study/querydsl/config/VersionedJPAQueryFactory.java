@@ -0,0 +1,123 @@
+package study.querydsl.config;
+
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Path;
+import com.querydsl.jpa.impl.JPADeleteClause;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import org.springframework.beans.factory.ObjectProvider;
+import study.querydsl.change.ChangeEventBus;
+import study.querydsl.change.ChangeOp;
+import study.querydsl.change.ChangeTable;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberCountCache;
+import study.querydsl.repository.MemberCountEstimator;
+import study.querydsl.repository.TableVersions;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/**
+ * 벌크 update/delete 는 엔티티 리스너를 거치지 않으므로 execute() 시점에 테이블 버전을 올린다.
+ * 변경 이벤트도 커밋 이후에 대상 row 를 모르는 변경(ALL_ROWS)으로 넣는다. update 는 set 한 속성을 같이 넘긴다.
+ * 건수 캐시 / 추정 카운터도 같은 이유로 비운다. (추정 카운터가 JPAQueryFactory 를 쓰므로 ObjectProvider 로 늦게 꺼낸다)
+ */
+public class VersionedJPAQueryFactory extends JPAQueryFactory {
+
+    private final EntityManager em;
+    private final TableVersions tableVersions;
+    private final ChangeEventBus changeEventBus;
+    private final ObjectProvider<MemberCountCache> memberCountCache;
+    private final ObjectProvider<MemberCountEstimator> memberCountEstimator;
+
+    public VersionedJPAQueryFactory(EntityManager em, TableVersions tableVersions, ChangeEventBus changeEventBus,
+                                    ObjectProvider<MemberCountCache> memberCountCache,
+                                    ObjectProvider<MemberCountEstimator> memberCountEstimator) {
+        super(em);
+        this.em = em;
+        this.tableVersions = tableVersions;
+        this.changeEventBus = changeEventBus;
+        this.memberCountCache = memberCountCache;
+        this.memberCountEstimator = memberCountEstimator;
+    }
+
+    @Override
+    public JPAUpdateClause update(EntityPath<?> path) {
+        return new JPAUpdateClause(em, path) {
+            private long columns;
+
+            @Override
+            public <T> JPAUpdateClause set(Path<T> target, T value) {
+                columns |= columnOf(path, target);
+                return super.set(target, value);
+            }
+
+            @Override
+            public <T> JPAUpdateClause set(Path<T> target, Expression<? extends T> expression) {
+                columns |= columnOf(path, target);
+                return super.set(target, expression);
+            }
+
+            @Override
+            public <T> JPAUpdateClause setNull(Path<T> target) {
+                columns |= columnOf(path, target);
+                return super.setNull(target);
+            }
+
+            @Override
+            public JPAUpdateClause set(List<? extends Path<?>> targets, List<?> values) {
+                for (Path<?> target : targets) {
+                    columns |= columnOf(path, target);
+                }
+                return super.set(targets, values);
+            }
+
+            @Override
+            public long execute() {
+                long affected = super.execute();
+                afterBulkChange(path);
+                changeEventBus.publishAfterCommit(changeTableOf(path), ChangeOp.UPDATE, ChangeEventBus.ALL_ROWS,
+                        columns != 0 ? columns : ChangeEventBus.ALL_COLUMNS);
+                return affected;
+            }
+        };
+    }
+
+    @Override
+    public JPADeleteClause delete(EntityPath<?> path) {
+        return new JPADeleteClause(em, path) {
+            @Override
+            public long execute() {
+                long affected = super.execute();
+                afterBulkChange(path);
+                changeEventBus.publishAfterCommit(changeTableOf(path), ChangeOp.DELETE, ChangeEventBus.ALL_ROWS,
+                        ChangeEventBus.ALL_COLUMNS);
+                return affected;
+            }
+        };
+    }
+
+    private void afterBulkChange(EntityPath<?> path) {
+        tableVersions.bump(tableOf(path));
+        memberCountCache.ifAvailable(MemberCountCache::invalidateAfterCompletion);
+        memberCountEstimator.ifAvailable(MemberCountEstimator::markStaleAfterCompletion);
+    }
+
+    private static String tableOf(EntityPath<?> path) {
+        return Team.class.equals(path.getType()) ? TableVersions.TEAM : TableVersions.MEMBER;
+    }
+
+    private static ChangeTable changeTableOf(EntityPath<?> path) {
+        return Team.class.equals(path.getType()) ? ChangeTable.TEAM : ChangeTable.MEMBER;
+    }
+
+    //member.team.id 처럼 중첩된 경로면 엔티티 바로 아래 속성(team) 으로 본다.
+    private long columnOf(EntityPath<?> entity, Path<?> target) {
+        Path<?> property = target;
+        while (property.getMetadata().getParent() != null && !property.getMetadata().getParent().equals(entity)) {
+            property = property.getMetadata().getParent();
+        }
+        return changeEventBus.columnsOf(changeTableOf(entity), property.getMetadata().getName());
+    }
+}
@@ -0,0 +1,32 @@
+package study.querydsl.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import study.querydsl.codec.MemberColumnarHttpMessageConverter;
+import study.querydsl.metrics.PoolMetricsInterceptor;
+import study.querydsl.metrics.RequestPhaseRecorder;
+
+import java.util.List;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final PoolMetricsInterceptor poolMetricsInterceptor;
+    private final RequestPhaseRecorder requestPhaseRecorder;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(poolMetricsInterceptor);
+        registry.addInterceptor(requestPhaseRecorder);
+    }
+
+    //json 뒤에 추가해서 Accept 에 명시했을때만 선택되도록 한다.
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new MemberColumnarHttpMessageConverter());
+    }
+}
@@ -1,36 +1,154 @@
 package study.querydsl.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import study.querydsl.codec.MemberColumnarHttpMessageConverter;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.InvalidSearchException;
 import study.querydsl.repository.MemberJpaRepository;
-import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberSearchSingleFlight;
+import study.querydsl.repository.MemberStreamingSearch;
+import study.querydsl.repository.ShardedMemberRepository;
+import study.querydsl.repository.TableVersions;
 
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
+    private static final long STREAM_TIMEOUT_MS = 60_000;
+    private static final int STREAM_BATCH = 64;
+    private static final MediaType JSON_SUFFIX = new MediaType("application", "*+json");
+
     private final MemberJpaRepository memberJpaRepository;
-    private final MemberRepository memberRepository;
+    private final MemberSearchSingleFlight memberSearchSingleFlight;
+    private final TableVersions tableVersions;
+    private final MemberStreamingSearch memberStreamingSearch;
+    private final NdjsonWriterPool ndjsonWriterPool;
+    private final ObjectProvider<ShardedMemberRepository> shardedMemberRepository;
 
+    //If-None-Match 가 같으면 304 를 내려주고 쿼리는 실행하지 않는다. (checkNotModified 가 true 면 body 는 무시된다)
     @GetMapping("/v1/members")
-    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
-        return memberJpaRepository.search(condition);
+    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition, ServletWebRequest request) {
+        if (notModified("v1", condition, null, request)) {
+            return null;
+        }
+        //샤드가 켜져 있으면 /v2 ~ /v5 와 같은 데이터를 읽는다.
+        ShardedMemberRepository sharded = shardedMemberRepository.getIfAvailable();
+        return sharded != null ? sharded.search(condition) : memberJpaRepository.search(condition);
     }
 
     @GetMapping("/v2/members")
-    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageSimple(condition,pageable);
+    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable, ServletWebRequest request) {
+        if (notModified("v2", condition, pageable, request)) {
+            return null;
+        }
+        return memberSearchSingleFlight.searchPageSimple(condition,pageable);
     }
 
     @GetMapping("/v3/members")
-    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageComplex(condition,pageable);
+    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable, ServletWebRequest request) {
+        if (notModified("v3", condition, pageable, request)) {
+            return null;
+        }
+        return memberSearchSingleFlight.searchPageComplex(condition,pageable);
+    }
+
+    @GetMapping("/v4/members")
+    public Slice<MemberTeamDto> searchMemberV4(MemberSearchCondition condition, Pageable pageable, ServletWebRequest request) {
+        if (notModified("v4", condition, pageable, request)) {
+            return null;
+        }
+        return memberSearchSingleFlight.searchSlice(condition,pageable);
+    }
+
+    /**
+     * 검색 결과를 ndjson 으로 흘려보낸다. 요청 스레드는 바로 반환되고 조회는 MemberStreamingSearch 스레드풀, 전송은 NdjsonWriterPool 에서 한다.
+     * 클라이언트가 읽는 만큼만 chunk 단위로 조회한다.
+     */
+    @GetMapping("/v5/members")
+    public ResponseEntity<ResponseBodyEmitter> searchMemberV5(MemberSearchCondition condition) {
+        //스트림을 시작하면 상태 코드를 바꿀 수 없으므로 먼저 거절한다.
+        ShardedMemberRepository sharded = shardedMemberRepository.getIfAvailable();
+        if (sharded != null) {
+            sharded.validate(condition);
+        }
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(STREAM_TIMEOUT_MS);
+        memberStreamingSearch.search(condition).subscribe(new NdjsonEmitterSubscriber<>(emitter, STREAM_BATCH, ndjsonWriterPool));
+        return ResponseEntity.ok()
+                .contentType(NdjsonEmitterSubscriber.APPLICATION_NDJSON)
+                .body(emitter);
+    }
+
+    //허용하지 않은 정렬 속성 등 잘못된 요청
+    @ExceptionHandler(InvalidSearchException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Map<String, String> badRequest(InvalidSearchException e) {
+        return Map.of("message", e.getMessage());
+    }
+
+    //같은 url 이 Accept 에 따라 json / 컬럼 포맷으로 나가므로 ETag 에 표현을 넣고 캐시에는 Vary: Accept 를 알린다.
+    private boolean notModified(String api, MemberSearchCondition condition, Pageable pageable, ServletWebRequest request) {
+        HttpServletResponse response = request.getResponse();
+        if (response != null) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        return request.checkNotModified(eTag(api, condition, pageable, representation(request)));
+    }
+
+    // 조건 + 페이지 + 표현 + member/team 테이블 버전으로 만든다. 쓰기가 있으면 버전이 바뀌어 ETag 도 바뀐다.
+    private String eTag(String api, MemberSearchCondition condition, Pageable pageable, MediaType representation) {
+        String source = api + "|" + condition + "|" + pageable + "|" + representation
+                + "|" + tableVersions.getMemberVersion() + "|" + tableVersions.getTeamVersion();
+        return DigestUtils.md5DigestAsHex(source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 메시지 컨버터가 고를 표현. json 컨버터가 컬럼 컨버터보다 앞에 있으므로(WebConfig)
+     * Accept 를 구체성/q 순으로 봐서 json 과 먼저 맞으면 json, 컬럼 포맷과만 맞으면 컬럼 포맷이다.
+     */
+    private static MediaType representation(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || accept.isBlank()) {
+            return MediaType.APPLICATION_JSON;
+        }
+        List<MediaType> acceptable;
+        try {
+            acceptable = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_JSON;
+        }
+        MediaType.sortBySpecificityAndQuality(acceptable);
+        for (MediaType mediaType : acceptable) {
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON) || mediaType.isCompatibleWith(JSON_SUFFIX)) {
+                return MediaType.APPLICATION_JSON;
+            }
+            if (mediaType.isCompatibleWith(MemberColumnarHttpMessageConverter.MEDIA_TYPE)) {
+                return MemberColumnarHttpMessageConverter.MEDIA_TYPE;
+            }
+        }
+        return MediaType.APPLICATION_JSON;
     }
 }
@@ -0,0 +1,95 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.change.ChangeEventBus;
+import study.querydsl.metrics.PoolMetrics;
+import study.querydsl.metrics.SlowQueryLog;
+import study.querydsl.metrics.StatementStats;
+import study.querydsl.repository.MemberArchiver;
+import study.querydsl.repository.MemberBatchLoader;
+import study.querydsl.repository.MemberSearchSingleFlight;
+import study.querydsl.repository.MemberStreamingSearch;
+import study.querydsl.repository.ShardSynchronizer;
+import study.querydsl.repository.SingleFlight;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequiredArgsConstructor
+public class MonitorController {
+
+    private final PoolMetrics poolMetrics;
+    private final MemberSearchSingleFlight memberSearchSingleFlight;
+    private final ObjectProvider<MemberBatchLoader> memberBatchLoader;
+    private final ObjectProvider<MemberArchiver> memberArchiver;
+    private final ObjectProvider<ShardSynchronizer> shardSynchronizer;
+    private final SlowQueryLog slowQueryLog;
+    private final StatementStats statementStats;
+    private final MemberStreamingSearch memberStreamingSearch;
+    private final NdjsonWriterPool ndjsonWriterPool;
+    private final ChangeEventBus changeEventBus;
+
+    @GetMapping("/monitor/pool")
+    public Map<String, Object> pool() {
+        return poolMetrics.snapshot();
+    }
+
+    @GetMapping("/monitor/single-flight")
+    public Map<String, Object> singleFlight() {
+        SingleFlight<List<Object>, Object> singleFlight = memberSearchSingleFlight.getSingleFlight();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("executed", singleFlight.getExecuted());
+        stats.put("coalesced", singleFlight.getCoalesced());
+        stats.put("waitTimeouts", singleFlight.getWaitTimeouts());
+        stats.put("inFlight", singleFlight.getInFlight());
+        return stats;
+    }
+
+    @GetMapping("/monitor/batch-loader")
+    public Map<String, Object> batchLoader() {
+        MemberBatchLoader loader = memberBatchLoader.getIfAvailable();
+        return loader != null ? loader.stats() : Map.of("enabled", false);
+    }
+
+    @GetMapping("/monitor/archive")
+    public Map<String, Object> archive() {
+        MemberArchiver archiver = memberArchiver.getIfAvailable();
+        return archiver != null ? archiver.stats() : Map.of("enabled", false);
+    }
+
+    @GetMapping("/monitor/shard-sync")
+    public Map<String, Object> shardSync() {
+        ShardSynchronizer synchronizer = shardSynchronizer.getIfAvailable();
+        return synchronizer != null ? synchronizer.stats() : Map.of("enabled", false);
+    }
+
+    @GetMapping("/monitor/streaming")
+    public Map<String, Object> streaming() {
+        Map<String, Object> stats = new LinkedHashMap<>(memberStreamingSearch.stats());
+        stats.put("writer", ndjsonWriterPool.stats());
+        return stats;
+    }
+
+    @GetMapping("/monitor/change-events")
+    public Map<String, Object> changeEvents() {
+        return changeEventBus.stats();
+    }
+
+    @GetMapping("/monitor/slow-queries")
+    public List<SlowQueryLog.SlowQuery> slowQueries() {
+        return slowQueryLog.recent();
+    }
+
+    // orderBy : total(기본), avg, max, calls, rows
+    @GetMapping("/monitor/statements")
+    public List<StatementStats.Fingerprint> statements(@RequestParam(defaultValue = "20") int limit,
+                                                       @RequestParam(defaultValue = "total") String orderBy) {
+        return statementStats.top(limit, orderBy);
+    }
+}
@@ -0,0 +1,119 @@
+package study.querydsl.controller;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publisher 를 구독해서 한 줄에 json 하나씩(ndjson) 응답으로 흘려보낸다.
+ * onNext 는 큐에 넣기만 하고 소켓 쓰기는 writer 스레드에서 한다. (ResponseBodyEmitter.send 는 소켓이 밀리면 막힌다)
+ * batch 건을 다 쓰고 나서야 다음 batch 를 request 하므로 클라이언트가 느리면 DB 조회도 같이 멈추고 큐는 batch 건을 넘지 않는다.
+ * 쓰기는 wip 카운터로 스트림당 한 스레드씩만 한다. 연결이 끊기거나 타임아웃이면 구독을 취소한다.
+ */
+class NdjsonEmitterSubscriber<T> implements Flow.Subscriber<T> {
+
+    static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final ResponseBodyEmitter emitter;
+    private final int batch;
+    private final Executor writer;
+
+    private final Queue<T> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile Flow.Subscription subscription;
+    private volatile boolean done;
+    private volatile Throwable error;
+
+    //writer 스레드에서만 건드린다.
+    private int written;
+    private boolean finished;
+
+    NdjsonEmitterSubscriber(ResponseBodyEmitter emitter, int batch, Executor writer) {
+        this.emitter = emitter;
+        this.batch = batch;
+        this.writer = writer;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+        subscription.request(batch);
+    }
+
+    @Override
+    public void onNext(T item) {
+        pending.offer(item);
+        schedule();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        error = throwable;
+        done = true;
+        schedule();
+    }
+
+    @Override
+    public void onComplete() {
+        done = true;
+        schedule();
+    }
+
+    private void schedule() {
+        if (wip.getAndIncrement() == 0) {
+            try {
+                writer.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                //wip 를 가진 채로 끝내므로 이후 쓰기는 실행되지 않는다.
+                subscription.cancel();
+                pending.clear();
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private void drain() {
+        int missed = 1;
+        for (;;) {
+            T item;
+            while (!finished && (item = pending.poll()) != null) {
+                try {
+                    emitter.send(item, MediaType.APPLICATION_JSON);
+                    emitter.send("\n", MediaType.TEXT_PLAIN);
+                } catch (IOException | IllegalStateException e) {
+                    finished = true;
+                    subscription.cancel();
+                    emitter.completeWithError(e);
+                    break;
+                }
+                if (++written == batch) {
+                    written = 0;
+                    subscription.request(batch);
+                }
+            }
+            if (finished) {
+                pending.clear();
+            } else if (done && pending.isEmpty()) {
+                finished = true;
+                if (error != null) {
+                    emitter.completeWithError(error);
+                } else {
+                    emitter.complete();
+                }
+            }
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package study.querydsl.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /v5 응답의 소켓 쓰기 전용 스레드. DB 조회 풀(MemberStreamingSearch)과 나눠서 느린 클라이언트가 조회를 막지 않게 한다.
+ * 스트림마다 쓰는 중일 때만 스레드 하나를 쓰고 다 쓰면 돌려준다. 쓰기가 막힌 스트림은 그 스레드 하나만 잡는다.
+ * 스레드는 max-writers 까지만 늘어나고, 모두 막혀 있으면 새로 쓰려는 스트림은 RejectedExecutionException 으로 끝난다.
+ */
+@Component
+class NdjsonWriterPool implements Executor {
+
+    private final ThreadPoolExecutor executor;
+
+    NdjsonWriterPool(@Value("${study.streaming.max-writers:64}") int maxWriters) {
+        this.executor = new ThreadPoolExecutor(0, maxWriters, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "member-streaming-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        executor.execute(command);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("writing", executor.getActiveCount());
+        stats.put("writers", executor.getPoolSize());
+        stats.put("maxWriters", executor.getMaximumPoolSize());
+        return stats;
+    }
+}
@@ -1,7 +1,10 @@
 package study.querydsl.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.entity.Member;
@@ -10,6 +13,7 @@ import study.querydsl.entity.Team;
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.concurrent.CompletableFuture;
 
 @Profile("local")
 @Component
@@ -18,9 +22,39 @@ public class initMember {
 
     private final InitMemberService initMemberService;
 
+    //true 면 기동 완료(ready) 이후 별도 스레드에서 데이터를 넣는다. (fast 프로파일)
+    @Value("${study.startup.deferred-seeding:false}")
+    private boolean deferredSeeding;
+
+    private final CompletableFuture<Void> seeded = new CompletableFuture<>();
+
     @PostConstruct
     public void init() {
-        initMemberService.init();
+        if (!deferredSeeding) {
+            initMemberService.init();
+            seeded.complete(null);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initAfterReady() {
+        if (!deferredSeeding) {
+            return;
+        }
+        Thread seeding = new Thread(() -> {
+            try {
+                initMemberService.init();
+                seeded.complete(null);
+            } catch (RuntimeException e) {
+                seeded.completeExceptionally(e);
+            }
+        }, "member-seeding");
+        seeding.setDaemon(true);
+        seeding.start();
+    }
+
+    public CompletableFuture<Void> seeded() {
+        return seeded;
     }
 
     @Component
@@ -9,4 +9,6 @@ public class MemberSearchCondition {
     private String teamName;
     private Integer ageGoe;
     private Integer ageLoe;
+    //true 면 archive 된 회원도 함께 검색한다. 기본은 member(hot) 테이블만.
+    private boolean includeArchived;
 }
\ No newline at end of file
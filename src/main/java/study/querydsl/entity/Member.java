@@ -1,10 +1,24 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import study.querydsl.repository.MemberCountListener;
+import study.querydsl.repository.TableVersionListener;
 
 import javax.persistence.*;
+import java.time.LocalDateTime;
 
 @Entity
+@EntityListeners({MemberCountListener.class, TableVersionListener.class})
+@Table(indexes = {
+        @Index(name = "idx_member_username", columnList = "username"),
+        //team/age 필터 + member_id 만 읽는 조회가 인덱스만으로 끝나도록 (deferred join)
+        @Index(name = "idx_member_team_age", columnList = "team_id, age, member_id"),
+        @Index(name = "idx_member_age", columnList = "age, member_id"),
+        //오래 활동이 없는 회원을 archive 로 옮길 때 (MemberArchiver)
+        @Index(name = "idx_member_last_active", columnList = "last_active_at, member_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
@@ -12,9 +26,14 @@ import javax.persistence.*;
 public class Member {
 
     @Id
-    @GeneratedValue @Column(name = "member_id") private Long id;
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @GenericGenerator(name = "member_seq_generator", strategy = "study.querydsl.entity.PooledSequenceGenerator",
+            parameters = @Parameter(name = "sequence_name", value = "member_seq"))
+    @Column(name = "member_id") private Long id;
     private String username; private int age;
     @ManyToOne(fetch = FetchType.LAZY) @JoinColumn(name = "team_id") private Team team;
+    @Column(updatable = false) private LocalDateTime createdAt;
+    private LocalDateTime lastActiveAt;
 
     public Member(String username) {
         this(username, 0);
@@ -32,4 +51,25 @@ public class Member {
     // 양방향 매핑시 사용되는 연관관계 편의 메서드 . 하나의 team 정보를 세팅할때 조인된 양쪽방향에서 넣어준다.
     public void changeTeam(Team team) { this.team = team; team.getMembers().add(this);
     }
+
+    //수정 없는 활동(로그인 등)이 있을 때 호출한다. 수정은 @PreUpdate 가 활동으로 기록한다.
+    //오래 활동이 없는 회원은 archive 대상이 된다. (MemberArchiver)
+    public void markActive() {
+        this.lastActiveAt = LocalDateTime.now();
+    }
+
+    @PrePersist
+    void prePersist() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+        if (lastActiveAt == null) {
+            lastActiveAt = createdAt;
+        }
+    }
+
+    @PreUpdate
+    void preUpdate() {
+        markActive();
+    }
 }
@@ -0,0 +1,31 @@
+package study.querydsl.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 오래 활동이 없어서 member 에서 옮겨진 회원. (MemberArchiver 가 jdbc 로 옮긴다)
+ * member id 를 그대로 쓰므로 hot/archive 를 합쳐도 id 가 겹치지 않는다.
+ * team 은 연관관계 없이 id 만 가진다. 검색 인덱스는 member 와 같다.
+ */
+@Entity
+@Table(name = "member_archive", indexes = {
+        @Index(name = "idx_member_archive_username", columnList = "username"),
+        @Index(name = "idx_member_archive_team_age", columnList = "team_id, age, member_id"),
+        @Index(name = "idx_member_archive_age", columnList = "age, member_id")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString(of = {"id", "username", "age"})
+public class MemberArchive {
+
+    @Id
+    @Column(name = "member_id") private Long id;
+    private String username; private int age;
+    @Column(name = "team_id") private Long teamId;
+    private LocalDateTime createdAt;
+    private LocalDateTime lastActiveAt;
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,39 @@
+package study.querydsl.entity;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * 시퀀스를 allocation size 만큼 한번에 당겨오고 그 범위 안에서는 메모리에서 id를 나눠주는 pooled 전략.
+ * 범위 분배는 hibernate PooledOptimizer가 동기화해서 처리하고,
+ * 여러 노드가 같은 DB를 써도 시퀀스 자체가 increment 단위로 증가하므로 범위가 겹치지 않는다.
+ *
+ * 엔티티별 allocation size는 hibernate 설정 {@code study.id.increment_size.<시퀀스명>} 으로 덮어쓸 수 있다.
+ * 단, DB 시퀀스의 increment와 반드시 같아야 하므로 모든 노드가 같은 값을 써야한다.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String INCREMENT_SIZE_PREFIX = "study.id.increment_size.";
+    public static final String DEFAULT_INCREMENT_SIZE = "50";
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        String sequenceName = params.getProperty(SEQUENCE_PARAM);
+        Object incrementSize = serviceRegistry.getService(ConfigurationService.class)
+                .getSettings()
+                .get(INCREMENT_SIZE_PREFIX + sequenceName);
+
+        if (incrementSize != null) {
+            params.setProperty(INCREMENT_PARAM, incrementSize.toString());
+        }
+        params.putIfAbsent(INCREMENT_PARAM, DEFAULT_INCREMENT_SIZE);
+        params.putIfAbsent(OPT_PARAM, "pooled");
+
+        super.configure(type, params, serviceRegistry);
+    }
+}
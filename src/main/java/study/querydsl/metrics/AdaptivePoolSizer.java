@@ -0,0 +1,86 @@
+package study.querydsl.metrics;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 구간별 커넥션 대기시간과 점유시간(DB 지연)을 보고 풀 최대 크기를 min ~ max 사이에서 조절한다.
+ * - 대기가 생기는데 DB 지연은 아직 여유가 있으면 늘린다.
+ * - DB 지연이 상한을 넘으면 커넥션을 늘려봐야 DB 만 더 바빠지므로 유지한다.
+ * - 대기가 없고 idle 커넥션이 절반 이상이면 하나씩 줄인다.
+ * hikari 는 minimumIdle 이 maximumPoolSize 보다 작을 때만 idleTimeout 이 지난 idle 커넥션을 닫는다.
+ * minimumIdle 기본값은 처음 최대 크기이므로 min-size 로 같이 맞춰야 줄인 크기만큼 실제 커넥션이 닫힌다.
+ * study.pool.adaptive.enabled=true 일때만 등록된다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "study.pool.adaptive", name = "enabled", havingValue = "true")
+public class AdaptivePoolSizer {
+
+    private final PoolMetrics poolMetrics;
+    private final int minSize;
+    private final int maxSize;
+    private final long targetWaitMs;
+    private final long latencyCeilingMs;
+
+    public AdaptivePoolSizer(PoolMetrics poolMetrics,
+                             @Value("${study.pool.adaptive.min-size:5}") int minSize,
+                             @Value("${study.pool.adaptive.max-size:30}") int maxSize,
+                             @Value("${study.pool.adaptive.target-wait-ms:5}") long targetWaitMs,
+                             @Value("${study.pool.adaptive.latency-ceiling-ms:50}") long latencyCeilingMs) {
+        this.poolMetrics = poolMetrics;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.targetWaitMs = targetWaitMs;
+        this.latencyCeilingMs = latencyCeilingMs;
+    }
+
+    @Scheduled(fixedDelayString = "${study.pool.adaptive.interval-ms:5000}")
+    public void adjust() {
+        HikariDataSource dataSource = poolMetrics.getDataSource();
+        HikariPoolMXBean pool = dataSource != null ? dataSource.getHikariPoolMXBean() : null;
+        if (pool == null) {
+            return;
+        }
+
+        PoolMetrics.Window window = poolMetrics.drainWindow();
+        HikariConfigMXBean config = dataSource.getHikariConfigMXBean();
+        int current = config.getMaximumPoolSize();
+        int next = nextSize(current, window, pool.getThreadsAwaitingConnection(), pool.getIdleConnections());
+
+        int minimumIdle = Math.min(minSize, next);
+        if (config.getMinimumIdle() != minimumIdle) {
+            config.setMinimumIdle(minimumIdle);
+        }
+
+        if (next != current) {
+            log.info("pool resize {} -> {} (avgWait={}ms, maxWait={}ms, avgHold={}ms)",
+                    current, next, window.getAvgWaitMs(), window.getMaxWaitMs(), window.getAvgHoldMs());
+            config.setMaximumPoolSize(next);
+        }
+    }
+
+    int nextSize(int current, PoolMetrics.Window window, int pending, int idle) {
+        boolean waiting = pending > 0 || window.getMaxWaitMs() > targetWaitMs;
+        if (waiting) {
+            if (window.getAvgHoldMs() > latencyCeilingMs) {
+                return clamp(current);
+            }
+            return clamp(current + Math.max(1, current / 4));
+        }
+        if (idle * 2 >= current) {
+            return clamp(current - 1);
+        }
+        return clamp(current);
+    }
+
+    private int clamp(int size) {
+        return Math.max(minSize, Math.min(maxSize, size));
+    }
+}
@@ -0,0 +1,89 @@
+package study.querydsl.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 마이크로초 단위 2의 거듭제곱 버킷 히스토그램.
+ * 기록은 LongAdder 만 증가시키므로 여러 스레드가 동시에 기록해도 경합이 거의 없다.
+ * 백분위수는 버킷 상한값으로 근사한다.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 40;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void recordNanos(long nanos) {
+        recordMicros(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    public void recordMillis(long millis) {
+        recordMicros(TimeUnit.MILLISECONDS.toMicros(millis));
+    }
+
+    public void recordMicros(long micros) {
+        long value = Math.max(micros, 0);
+        buckets[bucketOf(value)].increment();
+        count.increment();
+        sumMicros.add(value);
+        maxMicros.accumulate(value);
+    }
+
+    private static int bucketOf(long micros) {
+        //0 -> 0, 1 -> 1, 2~3 -> 2, 4~7 -> 3 ...
+        return Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long meanMicros() {
+        long n = count.sum();
+        return n == 0 ? 0 : sumMicros.sum() / n;
+    }
+
+    public long maxMicros() {
+        return maxMicros.get();
+    }
+
+    public long percentileMicros(double percentile) {
+        long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(n * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i].sum();
+            if (seen >= rank) {
+                return Math.min(i == 0 ? 0 : 1L << i, maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    public Map<String, Long> summary() {
+        Map<String, Long> summary = new LinkedHashMap<>();
+        summary.put("count", count());
+        summary.put("meanMicros", meanMicros());
+        summary.put("p50Micros", percentileMicros(50));
+        summary.put("p99Micros", percentileMicros(99));
+        summary.put("p999Micros", percentileMicros(99.9));
+        summary.put("maxMicros", maxMicros());
+        return summary;
+    }
+}
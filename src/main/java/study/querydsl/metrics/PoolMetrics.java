@@ -0,0 +1,134 @@
+package study.querydsl.metrics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import lombok.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * hikari 커넥션 풀 계측.
+ * 커넥션 획득 대기시간, 사용(점유)시간을 히스토그램으로 모으고 엔드포인트별 점유시간을 따로 집계한다.
+ * 엔드포인트는 {@link PoolMetricsInterceptor} 가 요청 스레드에 넣어준 값을 사용한다.
+ */
+@Component
+public class PoolMetrics implements MetricsTrackerFactory, BeanPostProcessor {
+
+    private static final ThreadLocal<String> currentEndpoint = new ThreadLocal<>();
+
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+    private final LatencyHistogram holdTime = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> endpointHoldTime = new ConcurrentHashMap<>();
+    private final LongAdder timeouts = new LongAdder();
+
+    //AdaptivePoolSizer 가 주기마다 비우는 구간 통계
+    private final LongAdder windowWaitCount = new LongAdder();
+    private final LongAdder windowWaitNanos = new LongAdder();
+    private final LongAccumulator windowMaxWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder windowHoldCount = new LongAdder();
+    private final LongAdder windowHoldMillis = new LongAdder();
+
+    private volatile HikariDataSource dataSource;
+
+    //p6spy 데코레이터가 감싸기 전의 원본 HikariDataSource 에 tracker 를 건다.
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource) {
+            HikariDataSource hikariDataSource = (HikariDataSource) bean;
+            hikariDataSource.setMetricsTrackerFactory(this);
+            this.dataSource = hikariDataSource;
+        }
+        return bean;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                waitTime.recordNanos(elapsedAcquiredNanos);
+                windowWaitCount.increment();
+                windowWaitNanos.add(elapsedAcquiredNanos);
+                windowMaxWaitNanos.accumulate(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                holdTime.recordMillis(elapsedBorrowedMillis);
+                windowHoldCount.increment();
+                windowHoldMillis.add(elapsedBorrowedMillis);
+                String endpoint = currentEndpoint.get();
+                if (endpoint != null) {
+                    endpointHoldTime.computeIfAbsent(endpoint, key -> new LatencyHistogram())
+                            .recordMillis(elapsedBorrowedMillis);
+                }
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    static void enterEndpoint(String endpoint) {
+        currentEndpoint.set(endpoint);
+    }
+
+    static void exitEndpoint() {
+        currentEndpoint.remove();
+    }
+
+    public HikariDataSource getDataSource() {
+        return dataSource;
+    }
+
+    public Window drainWindow() {
+        long waitCount = windowWaitCount.sumThenReset();
+        long waitNanos = windowWaitNanos.sumThenReset();
+        long maxWaitNanos = windowMaxWaitNanos.getThenReset();
+        long holdCount = windowHoldCount.sumThenReset();
+        long holdMillis = windowHoldMillis.sumThenReset();
+        return new Window(
+                waitCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(waitNanos / waitCount),
+                TimeUnit.NANOSECONDS.toMillis(maxWaitNanos),
+                holdCount == 0 ? 0 : holdMillis / holdCount);
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        HikariPoolMXBean pool = dataSource != null ? dataSource.getHikariPoolMXBean() : null;
+        if (pool != null) {
+            snapshot.put("active", pool.getActiveConnections());
+            snapshot.put("idle", pool.getIdleConnections());
+            snapshot.put("pending", pool.getThreadsAwaitingConnection());
+            snapshot.put("total", pool.getTotalConnections());
+            snapshot.put("maximumPoolSize", dataSource.getHikariConfigMXBean().getMaximumPoolSize());
+        }
+        snapshot.put("timeouts", timeouts.sum());
+        snapshot.put("waitTime", waitTime.summary());
+        snapshot.put("holdTime", holdTime.summary());
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        endpointHoldTime.forEach((endpoint, histogram) -> endpoints.put(endpoint, histogram.summary()));
+        snapshot.put("endpointHoldTime", endpoints);
+        return snapshot;
+    }
+
+    @Value
+    public static class Window {
+        long avgWaitMs;
+        long maxWaitMs;
+        //커넥션 점유시간 평균. DB 응답 지연의 근사치로 쓴다.
+        long avgHoldMs;
+    }
+}
@@ -0,0 +1,95 @@
+package study.querydsl.metrics;
+
+import com.p6spy.engine.common.PreparedStatementInformation;
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * p6spy 이벤트로 SQL 실행시간과 조회 건수를 재서 {@link StatementStats} 에 집계하고, 느린 쿼리는 {@link SlowQueryLog} 에 넘긴다.
+ * select 는 실행 + ResultSet 을 끝까지 읽은 시간까지 합쳐서 close 시점에 판단한다.
+ * p6spy starter 가 JdbcEventListener 빈을 자동으로 등록한다.
+ * DataSource 를 감쌀때 만들어지므로 DataSource 를 쓰는 SlowQueryLog 는 늦게 꺼낸다.
+ */
+@Component
+public class QueryEventListener extends JdbcEventListener {
+
+    private static final int MAX_PENDING = 256;
+
+    private final ObjectProvider<SlowQueryLog> slowQueryLog;
+    private final ObjectProvider<StatementStats> statementStats;
+
+    //ResultSet 을 다 읽을때까지 statement 별 누적 시간과 건수
+    private final ThreadLocal<Map<StatementInformation, Pending>> pending =
+            ThreadLocal.withInitial(IdentityHashMap::new);
+
+    public QueryEventListener(ObjectProvider<SlowQueryLog> slowQueryLog,
+                              ObjectProvider<StatementStats> statementStats) {
+        this.slowQueryLog = slowQueryLog;
+        this.statementStats = statementStats;
+    }
+
+    @Override
+    public void onAfterExecuteQuery(PreparedStatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        Map<StatementInformation, Pending> statements = pending.get();
+        if (statements.size() >= MAX_PENDING) {
+            statements.clear();
+        }
+        statements.put(statementInformation, new Pending(timeElapsedNanos, RepositoryMethodTracker.current()));
+    }
+
+    @Override
+    public void onAfterResultSetNext(ResultSetInformation resultSetInformation, long timeElapsedNanos, boolean hasNext, SQLException e) {
+        Pending statement = pending.get().get(resultSetInformation.getStatementInformation());
+        if (statement != null) {
+            statement.elapsedNanos += timeElapsedNanos;
+            if (hasNext) {
+                statement.rows++;
+            }
+        }
+    }
+
+    @Override
+    public void onAfterResultSetClose(ResultSetInformation resultSetInformation, SQLException e) {
+        StatementInformation statementInformation = resultSetInformation.getStatementInformation();
+        Pending statement = pending.get().remove(statementInformation);
+        if (statement != null) {
+            completed(statementInformation, statement.elapsedNanos, statement.rows, statement.repositoryMethod);
+        }
+    }
+
+    @Override
+    public void onAfterExecuteUpdate(PreparedStatementInformation statementInformation, long timeElapsedNanos, int rowCount, SQLException e) {
+        completed(statementInformation, timeElapsedNanos, rowCount, RepositoryMethodTracker.current());
+    }
+
+    protected void completed(StatementInformation statementInformation, long elapsedNanos, long rows, String repositoryMethod) {
+        StatementStats stats = statementStats.getIfAvailable();
+        if (stats != null) {
+            stats.record(statementInformation.getSql(), elapsedNanos, rows, repositoryMethod);
+        }
+
+        SlowQueryLog log = slowQueryLog.getIfAvailable();
+        if (log != null && log.isSlow(elapsedNanos)) {
+            log.record(statementInformation.getSql(), statementInformation.getSqlWithValues(),
+                    elapsedNanos, rows, repositoryMethod);
+        }
+    }
+
+    static class Pending {
+        long elapsedNanos;
+        long rows;
+        final String repositoryMethod;
+
+        Pending(long elapsedNanos, String repositoryMethod) {
+            this.elapsedNanos = elapsedNanos;
+            this.repositoryMethod = repositoryMethod;
+        }
+    }
+}
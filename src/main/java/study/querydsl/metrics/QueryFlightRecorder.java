@@ -0,0 +1,109 @@
+package study.querydsl.metrics;
+
+import jdk.jfr.EventType;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.StringJoiner;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * MemberRepositoryImpl / MemberJpaRepository 메서드마다 {@link RepositoryQueryEvent} 를 남긴다.
+ * 이벤트가 꺼져 있으면 isEnabled 확인 하나만 하고 그대로 실행한다.
+ */
+@Aspect
+@Component
+public class QueryFlightRecorder {
+
+    private static final EventType EVENT_TYPE = EventType.getEventType(RepositoryQueryEvent.class);
+
+    @Around("execution(public * study.querydsl.repository.MemberRepositoryImpl.*(..))"
+            + " || execution(public * study.querydsl.repository.MemberJpaRepository.*(..))")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!EVENT_TYPE.isEnabled()) {
+            return joinPoint.proceed();
+        }
+
+        RepositoryQueryEvent event = new RepositoryQueryEvent();
+        event.begin();
+        Object result = joinPoint.proceed();
+        event.end();
+        if (event.shouldCommit()) {
+            event.method = joinPoint.getSignature().getDeclaringType().getSimpleName()
+                    + "." + joinPoint.getSignature().getName();
+            event.predicate = predicateShape(
+                    ((MethodSignature) joinPoint.getSignature()).getParameterNames(), joinPoint.getArgs());
+            event.rows = rows(result);
+            event.commit();
+        }
+        return result;
+    }
+
+    //조건 값이 아니라 어떤 조건이 들어왔는지만 남긴다. ex) teamName,ageGoe sort=age:DESC
+    //조건 필드는 리포지토리와 같은 규칙(hasText)으로 실제 적용되는 것만 남기고, 나머지 인자는 파라미터 이름으로 남긴다.
+    static String predicateShape(String[] names, Object[] args) {
+        StringJoiner shape = new StringJoiner(" ");
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            if (arg == null) {
+                continue;
+            }
+            String name = names != null ? names[i] : "arg" + i;
+            if (arg instanceof MemberSearchCondition) {
+                MemberSearchCondition condition = (MemberSearchCondition) arg;
+                StringJoiner fields = new StringJoiner(",");
+                if (hasText(condition.getUsername())) {
+                    fields.add("username");
+                }
+                if (hasText(condition.getTeamName())) {
+                    fields.add("teamName");
+                }
+                if (condition.getAgeGoe() != null) {
+                    fields.add("ageGoe");
+                }
+                if (condition.getAgeLoe() != null) {
+                    fields.add("ageLoe");
+                }
+                shape.add(fields.length() > 0 ? fields.toString() : "none");
+                if (condition.isIncludeArchived()) {
+                    shape.add("+archived");
+                }
+            } else if (arg instanceof Pageable) {
+                Pageable pageable = (Pageable) arg;
+                if (pageable.getSort().isSorted()) {
+                    shape.add("sort=" + pageable.getSort().toString().replace(": ", ":"));
+                }
+            } else if (arg instanceof Collection) {
+                shape.add(name + "[" + ((Collection<?>) arg).size() + "]");
+            } else if (arg instanceof String || arg instanceof Long) {
+                shape.add(name);
+            }
+        }
+        return shape.toString();
+    }
+
+    static long rows(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if (result instanceof Number) {
+            return ((Number) result).longValue();
+        }
+        return result != null ? 1 : 0;
+    }
+}
@@ -0,0 +1,35 @@
+package study.querydsl.metrics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * 지금 실행 중인 레포지토리 메서드를 스레드에 남겨서 SQL 이 어느 메서드에서 나왔는지 알 수 있게 한다.
+ * 레포지토리 안에서 다른 레포지토리 메서드를 부르면 바깥 메서드를 유지한다.
+ */
+@Aspect
+@Component
+public class RepositoryMethodTracker {
+
+    private static final ThreadLocal<String> currentMethod = new ThreadLocal<>();
+
+    @Around("execution(* study.querydsl.repository.*Repository*.*(..))")
+    public Object track(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (currentMethod.get() != null) {
+            return joinPoint.proceed();
+        }
+        currentMethod.set(joinPoint.getSignature().getDeclaringType().getSimpleName()
+                + "." + joinPoint.getSignature().getName());
+        try {
+            return joinPoint.proceed();
+        } finally {
+            currentMethod.remove();
+        }
+    }
+
+    public static String current() {
+        return currentMethod.get();
+    }
+}
@@ -0,0 +1,30 @@
+package study.querydsl.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 레포지토리 조회 한번. 기본은 꺼져 있다. (jfr/study.jfc 로 켠다)
+ */
+@Name("study.RepositoryQuery")
+@Label("Repository Query")
+@Category({"Study", "Repository"})
+@Description("MemberRepositoryImpl / MemberJpaRepository 메서드 실행")
+@Enabled(false)
+@StackTrace(false)
+public class RepositoryQueryEvent extends jdk.jfr.Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Predicate")
+    @Description("값이 있는 검색 조건 이름과 정렬 (값은 남기지 않는다)")
+    String predicate;
+
+    @Label("Rows")
+    long rows;
+}
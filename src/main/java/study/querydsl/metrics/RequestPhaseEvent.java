@@ -0,0 +1,35 @@
+package study.querydsl.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 컨트롤러 요청 단계. bind(파라미터 바인딩) / query(핸들러 실행) / serialize(응답 변환/쓰기). 기본은 꺼져 있다.
+ */
+@Name("study.RequestPhase")
+@Label("Request Phase")
+@Category({"Study", "Web"})
+@Description("MemberController 요청의 bind / query / serialize 구간")
+@Enabled(false)
+@StackTrace(false)
+public class RequestPhaseEvent extends jdk.jfr.Event {
+
+    static final String BIND = "bind";
+    static final String QUERY = "query";
+    static final String SERIALIZE = "serialize";
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Phase")
+    String phase;
+
+    RequestPhaseEvent(String endpoint, String phase) {
+        this.endpoint = endpoint;
+        this.phase = phase;
+    }
+}
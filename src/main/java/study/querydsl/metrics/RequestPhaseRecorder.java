@@ -0,0 +1,80 @@
+package study.querydsl.metrics;
+
+import jdk.jfr.EventType;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import study.querydsl.controller.MemberController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * MemberController 요청을 bind / query / serialize 단계로 나눠 {@link RequestPhaseEvent} 를 남긴다.
+ * preHandle ~ 핸들러 진입 = bind, 핸들러 실행 = query, 핸들러 반환 ~ afterCompletion = serialize.
+ * 단계 사이에는 진행 중인 이벤트를 request attribute 로 넘긴다. 이벤트가 꺼져 있으면 아무것도 만들지 않는다.
+ * 스트리밍(/v5) 응답은 afterCompletion 이 비동기 처리 뒤로 밀려서 serialize 가 남지 않을 수 있다.
+ */
+@Aspect
+@Component
+public class RequestPhaseRecorder implements HandlerInterceptor {
+
+    private static final EventType EVENT_TYPE = EventType.getEventType(RequestPhaseEvent.class);
+    private static final String CURRENT_PHASE = RequestPhaseRecorder.class.getName() + ".phase";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (EVENT_TYPE.isEnabled() && handler instanceof HandlerMethod
+                && ((HandlerMethod) handler).getBeanType() == MemberController.class) {
+            begin(request, RequestPhaseEvent.BIND);
+        }
+        return true;
+    }
+
+    @Around("execution(public * study.querydsl.controller.MemberController.*(..))")
+    public Object handle(ProceedingJoinPoint joinPoint) throws Throwable {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        Object bind = attributes != null ? attributes.getAttribute(CURRENT_PHASE, RequestAttributes.SCOPE_REQUEST) : null;
+        //@ExceptionHandler 처럼 핸들러 뒤에 다시 들어오는 호출은 bind 가 아니므로 그냥 실행한다.
+        if (!(bind instanceof RequestPhaseEvent) || !RequestPhaseEvent.BIND.equals(((RequestPhaseEvent) bind).phase)) {
+            return joinPoint.proceed();
+        }
+        RequestPhaseEvent bindEvent = (RequestPhaseEvent) bind;
+        bindEvent.commit();
+
+        RequestPhaseEvent query = new RequestPhaseEvent(bindEvent.endpoint, RequestPhaseEvent.QUERY);
+        query.begin();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            query.commit();
+            RequestPhaseEvent serialize = new RequestPhaseEvent(bindEvent.endpoint, RequestPhaseEvent.SERIALIZE);
+            serialize.begin();
+            attributes.setAttribute(CURRENT_PHASE, serialize, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object current = request.getAttribute(CURRENT_PHASE);
+        if (current instanceof RequestPhaseEvent) {
+            request.removeAttribute(CURRENT_PHASE);
+            ((RequestPhaseEvent) current).commit();
+        }
+    }
+
+    private static void begin(HttpServletRequest request, String phase) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        RequestPhaseEvent event = new RequestPhaseEvent(
+                request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI()), phase);
+        event.begin();
+        request.setAttribute(CURRENT_PHASE, event);
+    }
+}
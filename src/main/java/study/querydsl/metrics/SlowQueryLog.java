@@ -0,0 +1,155 @@
+package study.querydsl.metrics;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Collectors;
+
+/**
+ * 임계시간을 넘긴 SQL 을 최근 N 건만 링버퍼에 남긴다.
+ * select 는 별도 스레드에서 EXPLAIN 을 실행해 실행계획을 붙인다. (쿼리를 실행한 스레드는 기다리지 않는다)
+ */
+@Slf4j
+@Component
+public class SlowQueryLog {
+
+    private static final ThreadLocal<Boolean> explaining = ThreadLocal.withInitial(() -> false);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long thresholdNanos;
+    private final boolean explain;
+
+    private final AtomicReferenceArray<SlowQuery> ring;
+    private final AtomicLong sequence = new AtomicLong();
+    //explain 이 밀리면 버린다.
+    private final ExecutorService explainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(64), runnable -> {
+                Thread thread = new Thread(runnable, "slow-query-explain");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    public SlowQueryLog(JdbcTemplate jdbcTemplate,
+                        @Value("${study.slow-query.threshold-ms:100}") long thresholdMs,
+                        @Value("${study.slow-query.capacity:200}") int capacity,
+                        @Value("${study.slow-query.explain:true}") boolean explain) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+        this.explain = explain;
+        this.ring = new AtomicReferenceArray<>(capacity);
+    }
+
+    public boolean isSlow(long elapsedNanos) {
+        return elapsedNanos >= thresholdNanos && !explaining.get();
+    }
+
+    public void record(String sql, String sqlWithValues, long elapsedNanos, long rows, String repositoryMethod) {
+        SlowQuery slowQuery = new SlowQuery(sequence.incrementAndGet(), System.currentTimeMillis(),
+                jpqlOf(sql), sql, sqlWithValues, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), rows, repositoryMethod);
+        ring.set((int) (slowQuery.getSeq() % ring.length()), slowQuery);
+        log.warn("slow query {}ms rows={} method={} sql={}", slowQuery.getElapsedMs(), rows, repositoryMethod, sqlWithValues);
+
+        if (explain && sqlWithValues != null && stripComment(sqlWithValues).regionMatches(true, 0, "select", 0, 6)) {
+            explainExecutor.execute(() -> explain(slowQuery));
+        }
+    }
+
+    private void explain(SlowQuery slowQuery) {
+        explaining.set(true);
+        try {
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList("explain " + stripComment(slowQuery.getSqlWithValues()));
+            slowQuery.plan = rows.stream()
+                    .flatMap(row -> row.values().stream())
+                    .map(String::valueOf)
+                    .collect(Collectors.joining("\n"));
+        } catch (RuntimeException e) {
+            slowQuery.plan = "explain failed: " + e.getMessage();
+        } finally {
+            explaining.set(false);
+        }
+    }
+
+    //use_sql_comments 설정으로 SQL 앞에 붙는 /* jpql */ 주석
+    private static String jpqlOf(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        String trimmed = sql.trim();
+        if (trimmed.startsWith("/*")) {
+            int end = trimmed.indexOf("*/");
+            if (end > 0) {
+                return trimmed.substring(2, end).trim();
+            }
+        }
+        return null;
+    }
+
+    private static String stripComment(String sql) {
+        String trimmed = sql.trim();
+        if (trimmed.startsWith("/*")) {
+            int end = trimmed.indexOf("*/");
+            if (end > 0) {
+                return trimmed.substring(end + 2).trim();
+            }
+        }
+        return trimmed;
+    }
+
+    /**
+     * 최근 것부터.
+     */
+    public List<SlowQuery> recent() {
+        List<SlowQuery> recent = new ArrayList<>();
+        for (int i = 0; i < ring.length(); i++) {
+            SlowQuery slowQuery = ring.get(i);
+            if (slowQuery != null) {
+                recent.add(slowQuery);
+            }
+        }
+        recent.sort((a, b) -> Long.compare(b.getSeq(), a.getSeq()));
+        return recent;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        explainExecutor.shutdownNow();
+    }
+
+    @Getter
+    public static class SlowQuery {
+        private final long seq;
+        private final long timestamp;
+        private final String jpql;
+        private final String sql;
+        private final String sqlWithValues;
+        private final long elapsedMs;
+        private final long rows;
+        private final String repositoryMethod;
+        private volatile String plan;
+
+        SlowQuery(long seq, long timestamp, String jpql, String sql, String sqlWithValues,
+                  long elapsedMs, long rows, String repositoryMethod) {
+            this.seq = seq;
+            this.timestamp = timestamp;
+            this.jpql = jpql;
+            this.sql = sql;
+            this.sqlWithValues = sqlWithValues;
+            this.elapsedMs = elapsedMs;
+            this.rows = rows;
+            this.repositoryMethod = repositoryMethod;
+        }
+    }
+}
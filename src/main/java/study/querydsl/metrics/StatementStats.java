@@ -0,0 +1,147 @@
+package study.querydsl.metrics;
+
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * SQL 을 리터럴과 IN 목록을 접은 fingerprint 로 묶어서 호출수/시간/건수를 집계한다.
+ * 집계는 LongAdder 로만 하므로 같은 fingerprint 를 여러 스레드가 동시에 기록해도 경합이 없다.
+ */
+@Component
+public class StatementStats {
+
+    private static final int MAX_FINGERPRINTS = 1_000;
+    private static final int MAX_NORMALIZED_CACHE = 10_000;
+
+    private static final Pattern COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final Map<String, Fingerprint> fingerprints = new ConcurrentHashMap<>();
+    //hibernate 가 만드는 SQL 문자열은 반복되므로 정규화 결과를 재사용한다.
+    private final Map<String, String> normalized = new ConcurrentHashMap<>();
+
+    public void record(String sql, long elapsedNanos, long rows, String repositoryMethod) {
+        if (sql == null) {
+            return;
+        }
+        String fingerprint = normalized.get(sql);
+        if (fingerprint == null) {
+            fingerprint = normalize(sql);
+            if (normalized.size() < MAX_NORMALIZED_CACHE) {
+                normalized.put(sql, fingerprint);
+            }
+        }
+
+        Fingerprint stats = fingerprints.get(fingerprint);
+        if (stats == null) {
+            if (fingerprints.size() >= MAX_FINGERPRINTS) {
+                return;
+            }
+            stats = fingerprints.computeIfAbsent(fingerprint, key -> new Fingerprint(key, repositoryMethod));
+        }
+        stats.record(elapsedNanos, rows);
+    }
+
+    static String normalize(String sql) {
+        String result = COMMENT.matcher(sql).replaceAll(" ");
+        result = STRING_LITERAL.matcher(result).replaceAll("?");
+        result = NUMBER_LITERAL.matcher(result).replaceAll("?");
+        result = IN_LIST.matcher(result).replaceAll("in (...)");
+        return WHITESPACE.matcher(result).replaceAll(" ").trim().toLowerCase();
+    }
+
+    public List<Fingerprint> top(int limit, String orderBy) {
+        Comparator<Fingerprint> comparator;
+        switch (orderBy) {
+            case "calls":
+                comparator = Comparator.comparingLong(Fingerprint::getCalls);
+                break;
+            case "avg":
+                comparator = Comparator.comparingDouble(Fingerprint::getAvgMs);
+                break;
+            case "max":
+                comparator = Comparator.comparingDouble(Fingerprint::getMaxMs);
+                break;
+            case "rows":
+                comparator = Comparator.comparingLong(Fingerprint::getTotalRows);
+                break;
+            default:
+                comparator = Comparator.comparingDouble(Fingerprint::getTotalMs);
+        }
+        return fingerprints.values().stream()
+                .sorted(comparator.reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    public void reset() {
+        fingerprints.clear();
+    }
+
+    public static class Fingerprint {
+        @Getter private final String fingerprint;
+        //처음 이 SQL 을 실행한 레포지토리 메서드
+        @Getter private final String repositoryMethod;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder totalRows = new LongAdder();
+        private final LongAccumulator maxRows = new LongAccumulator(Math::max, 0);
+
+        Fingerprint(String fingerprint, String repositoryMethod) {
+            this.fingerprint = fingerprint;
+            this.repositoryMethod = repositoryMethod;
+        }
+
+        void record(long elapsedNanos, long rows) {
+            calls.increment();
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulate(elapsedNanos);
+            totalRows.add(rows);
+            maxRows.accumulate(rows);
+        }
+
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        public double getTotalMs() {
+            return totalNanos.sum() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        public double getAvgMs() {
+            long count = calls.sum();
+            return count == 0 ? 0 : getTotalMs() / count;
+        }
+
+        public double getMaxMs() {
+            return maxNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        public long getTotalRows() {
+            return totalRows.sum();
+        }
+
+        public double getAvgRows() {
+            long count = calls.sum();
+            return count == 0 ? 0 : (double) totalRows.sum() / count;
+        }
+
+        public long getMaxRows() {
+            return maxRows.get();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package study.querydsl.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * IN 절에 넣을 값을 중복 제거 후 일정 크기로 나눈다.
+ * 각 조각의 파라미터 개수는 hibernate in_clause_parameter_padding 설정으로 2의 거듭제곱에 맞춰지므로
+ * 조각 크기도 2의 거듭제곱으로 둬야 패딩이 조각 크기를 넘지 않는다.
+ */
+final class InClauseChunks {
+
+    static final int MAX_CHUNK_SIZE = 512;
+
+    private InClauseChunks() {
+    }
+
+    static <T> List<List<T>> split(Collection<T> values) {
+        List<T> distinct = new ArrayList<>(new LinkedHashSet<>(values));
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += MAX_CHUNK_SIZE) {
+            chunks.add(distinct.subList(from, Math.min(from + MAX_CHUNK_SIZE, distinct.size())));
+        }
+        return chunks;
+    }
+}
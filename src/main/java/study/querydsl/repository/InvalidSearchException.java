@@ -0,0 +1,12 @@
+package study.querydsl.repository;
+
+/**
+ * 클라이언트가 보낸 검색 요청 자체가 잘못된 경우. (허용하지 않은 정렬 속성 등)
+ * 컨트롤러는 이 예외만 400 으로 바꾼다. 그 외 IllegalArgumentException 은 서버 오류로 남긴다.
+ */
+public class InvalidSearchException extends IllegalArgumentException {
+
+    public InvalidSearchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,153 @@
+package study.querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.change.ChangeEventBus;
+import study.querydsl.change.ChangeOp;
+import study.querydsl.change.ChangeTable;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * lastActiveAt 이 cold-after 보다 오래된 member 를 member_archive 로 옮긴다. (hot / cold 분리)
+ * member 테이블과 인덱스를 최근 활동 회원 크기로 유지해서 검색이 버퍼 캐시 안에서 끝나도록 하는 것이 목적이다.
+ *
+ * batch-size 건씩 한 트랜잭션에서 select ... for update 로 잠근 뒤 insert ... select / delete 한다. 트랜잭션/락을 짧게 잡도록 배치마다 커밋하고,
+ * idx_member_last_active 순서로 읽으므로 한 배치는 인덱스 범위 하나만 읽는다.
+ * jdbc 로 직접 옮기므로 엔티티 리스너가 돌지 않는다. 이미 로딩된 엔티티는 그대로 남는다.
+ * lastActiveAt 이 없는 회원(jdbc 로 넣은 데이터 등)은 옮기지 않는다.
+ * lastActiveAt 은 가입, 엔티티 수정(@PreUpdate), write-behind 반영, {@link study.querydsl.entity.Member#markActive()} 때 갱신된다.
+ * 조회와 querydsl 벌크 update 는 활동으로 보지 않는다.
+ * study.archive.enabled=true 일때만 등록된다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "study.archive", name = "enabled", havingValue = "true")
+public class MemberArchiver {
+
+    //고른 row 를 트랜잭션 끝까지 잠가서 select ~ delete 사이의 수정이 끼어들지 못하게 한다.
+    private static final String SELECT_COLD = "select member_id from member " +
+            "where last_active_at < :cutoff order by last_active_at, member_id limit :limit for update";
+
+    //잠금과 별개로 옮길 때도 cold 조건을 다시 확인한다. copy 와 delete 가 같은 row 집합을 보도록 둘 다 건다.
+    private static final String COPY = "insert into member_archive " +
+            "(member_id, username, age, team_id, created_at, last_active_at, archived_at) " +
+            "select member_id, username, age, team_id, created_at, last_active_at, :archivedAt " +
+            "from member where member_id in (:ids) and last_active_at < :cutoff";
+
+    private static final String DELETE = "delete from member where member_id in (:ids) and last_active_at < :cutoff";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MemberCountCache memberCountCache;
+    private final MemberCountEstimator memberCountEstimator;
+    private final TableVersions tableVersions;
+    private final ChangeEventBus changeEventBus;
+    private final Duration coldAfter;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    private final LongAdder archivedRows = new LongAdder();
+    private final AtomicLong lastRunRows = new AtomicLong();
+    private final AtomicLong lastRunMs = new AtomicLong();
+
+    public MemberArchiver(NamedParameterJdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager,
+                          MemberCountCache memberCountCache,
+                          MemberCountEstimator memberCountEstimator,
+                          TableVersions tableVersions,
+                          ChangeEventBus changeEventBus,
+                          @Value("${study.archive.cold-after:180d}") Duration coldAfter,
+                          @Value("${study.archive.batch-size:500}") int batchSize,
+                          @Value("${study.archive.max-batches-per-run:100}") int maxBatchesPerRun) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.memberCountCache = memberCountCache;
+        this.memberCountEstimator = memberCountEstimator;
+        this.tableVersions = tableVersions;
+        this.changeEventBus = changeEventBus;
+        this.coldAfter = coldAfter;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    @Scheduled(fixedDelayString = "${study.archive.interval-ms:3600000}",
+            initialDelayString = "${study.archive.interval-ms:3600000}")
+    public void run() {
+        archive(LocalDateTime.now().minus(coldAfter));
+    }
+
+    /**
+     * cutoff 보다 오래 활동이 없는 회원을 옮긴다. 한번에 max-batches-per-run 배치까지만 하고 나머지는 다음 실행으로 넘긴다.
+     * @return 옮긴 회원 수
+     */
+    public long archive(LocalDateTime cutoff) {
+        long started = System.nanoTime();
+        long moved = 0;
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            Integer batch = transactionTemplate.execute(status -> archiveBatch(cutoff));
+            moved += batch;
+            if (batch < batchSize) {
+                break;
+            }
+        }
+        lastRunRows.set(moved);
+        lastRunMs.set(Duration.ofNanos(System.nanoTime() - started).toMillis());
+        if (moved > 0) {
+            log.info("archived {} members (cutoff = {})", moved, cutoff);
+        }
+        return moved;
+    }
+
+    private int archiveBatch(LocalDateTime cutoff) {
+        List<Long> ids = jdbcTemplate.queryForList(SELECT_COLD, new MapSqlParameterSource()
+                .addValue("cutoff", Timestamp.valueOf(cutoff))
+                .addValue("limit", batchSize), Long.class);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ids", ids)
+                .addValue("cutoff", Timestamp.valueOf(cutoff))
+                .addValue("archivedAt", Timestamp.valueOf(LocalDateTime.now()));
+        int copied = jdbcTemplate.update(COPY, params);
+        int deleted = jdbcTemplate.update(DELETE, params);
+        if (copied != deleted) {
+            //롤백시켜 어느 쪽에도 반쪽짜리 결과가 남지 않게 한다.
+            throw new IllegalStateException("archive copy/delete 건수가 다릅니다: copied=" + copied + ", deleted=" + deleted);
+        }
+
+        memberCountCache.invalidateAfterCompletion();
+        memberCountEstimator.markStaleAfterCompletion();
+        tableVersions.bump(TableVersions.MEMBER);
+        for (Long id : ids) {
+            changeEventBus.publishAfterCommit(ChangeTable.MEMBER, ChangeOp.DELETE, id, ChangeEventBus.ALL_COLUMNS);
+        }
+        archivedRows.add(deleted);
+        return deleted;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("coldAfter", coldAfter.toString());
+        stats.put("archivedRows", archivedRows.sum());
+        stats.put("lastRunRows", lastRunRows.get());
+        stats.put("lastRunMs", lastRunMs.get());
+        return stats;
+    }
+}
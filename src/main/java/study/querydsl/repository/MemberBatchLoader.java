@@ -0,0 +1,147 @@
+package study.querydsl.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.metrics.LatencyHistogram;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 동시에 들어온 findById 요청을 짧은 시간(window) 동안 모았다가 IN 쿼리 한번으로 조회한다. (DataLoader 방식)
+ * window 가 끝나거나 maxBatchSize 만큼 쌓이면 바로 보낸다.
+ * 조회는 별도 스레드의 영속성 컨텍스트에서 하므로 돌려받는 Member 는 준영속 상태다. (team 은 지연로딩 불가)
+ * study.batch-loader.enabled=true 일때만 등록된다.
+ */
+@Component
+@ConditionalOnProperty(prefix = "study.batch-loader", name = "enabled", havingValue = "true")
+public class MemberBatchLoader {
+
+    private final MemberRepository memberRepository;
+    private final long windowMicros;
+    private final int maxBatchSize;
+
+    private final ConcurrentLinkedQueue<Request> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final ScheduledExecutorService executor;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder loadedIds = new LongAdder();
+    private final LongAccumulator maxBatch = new LongAccumulator(Math::max, 0);
+    private final LatencyHistogram addedLatency = new LatencyHistogram();
+
+    public MemberBatchLoader(MemberRepository memberRepository,
+                             @Value("${study.batch-loader.window-micros:2000}") long windowMicros,
+                             @Value("${study.batch-loader.max-batch-size:256}") int maxBatchSize,
+                             @Value("${study.batch-loader.threads:2}") int threads) {
+        this.memberRepository = memberRepository;
+        this.windowMicros = windowMicros;
+        this.maxBatchSize = maxBatchSize;
+        this.executor = Executors.newScheduledThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "member-batch-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public CompletableFuture<Optional<Member>> load(Long id) {
+        Request request = new Request(id, System.nanoTime(), new CompletableFuture<>());
+        queue.add(request);
+
+        if (queued.incrementAndGet() >= maxBatchSize) {
+            executor.execute(this::dispatch);
+        } else if (scheduled.compareAndSet(false, true)) {
+            executor.schedule(this::dispatchScheduled, windowMicros, TimeUnit.MICROSECONDS);
+        }
+        return request.getFuture();
+    }
+
+    private void dispatchScheduled() {
+        scheduled.set(false);
+        dispatch();
+    }
+
+    private void dispatch() {
+        List<Request> batch = new ArrayList<>();
+        Request request;
+        while (batch.size() < maxBatchSize && (request = queue.poll()) != null) {
+            batch.add(request);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        queued.addAndGet(-batch.size());
+
+        //한번에 다 못 가져간 요청은 다음 window 로 넘긴다.
+        if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+            executor.schedule(this::dispatchScheduled, windowMicros, TimeUnit.MICROSECONDS);
+        }
+
+        long dispatchedAt = System.nanoTime();
+        batches.increment();
+        loadedIds.add(batch.size());
+        maxBatch.accumulate(batch.size());
+
+        try {
+            Map<Long, Member> byId = new HashMap<>();
+            List<Long> ids = new ArrayList<>(batch.size());
+            for (Request each : batch) {
+                ids.add(each.getId());
+            }
+            for (Member member : memberRepository.findAllByIds(ids)) {
+                byId.put(member.getId(), member);
+            }
+            for (Request each : batch) {
+                addedLatency.recordNanos(dispatchedAt - each.getEnqueuedAtNanos());
+                each.getFuture().complete(Optional.ofNullable(byId.get(each.getId())));
+            }
+        } catch (RuntimeException e) {
+            for (Request each : batch) {
+                each.getFuture().completeExceptionally(e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long batchCount = batches.sum();
+        stats.put("batches", batchCount);
+        stats.put("loadedIds", loadedIds.sum());
+        stats.put("avgBatchSize", batchCount == 0 ? 0 : (double) loadedIds.sum() / batchCount);
+        stats.put("maxBatchSize", maxBatch.get());
+        stats.put("addedLatency", addedLatency.summary());
+        return stats;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class Request {
+        private final Long id;
+        private final long enqueuedAtNanos;
+        private final CompletableFuture<Optional<Member>> future;
+    }
+}
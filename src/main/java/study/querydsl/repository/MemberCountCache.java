@@ -0,0 +1,140 @@
+package study.querydsl.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.CountedPage;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 같은 검색 조건으로 페이지를 넘길때 count 쿼리를 매번 다시 실행하지 않도록 전체 건수를 TTL 동안 캐시한다.
+ * member/team 쓰기가 일어나면 전부 비운다.
+ * study.count.mode=approximate 면 username 조건이 없는 검색은 {@link MemberCountEstimator} 추정값을 쓴다.
+ */
+@Component
+public class MemberCountCache {
+
+    private static final int MAX_ENTRIES = 10_000;
+
+    private final MemberCountEstimator estimator;
+    private final long ttlNanos;
+    private final boolean approximate;
+
+    private final Map<Key, Entry> cache = new ConcurrentHashMap<>();
+    //invalidate 이후에 끝난 count 결과가 다시 캐시에 들어가지 않도록 세대를 비교한다.
+    private final AtomicLong generation = new AtomicLong();
+
+    public MemberCountCache(MemberCountEstimator estimator,
+                            @Value("${study.count.ttl-ms:10000}") long ttlMs,
+                            @Value("${study.count.mode:exact}") String mode) {
+        this.estimator = estimator;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.approximate = "approximate".equalsIgnoreCase(mode);
+    }
+
+    /**
+     * PageableExecutionUtils.getPage 와 같이 마지막 페이지처럼 content 로 전체 건수를 알 수 있으면 count 를 생략한다.
+     */
+    public <T> Page<T> getPage(List<T> content, Pageable pageable, MemberSearchCondition condition, LongSupplier countQuery) {
+        if (pageable.isUnpaged()) {
+            return new CountedPage<>(content, pageable, content.size(), true);
+        }
+        if (!content.isEmpty() && content.size() < pageable.getPageSize()) {
+            return new CountedPage<>(content, pageable, pageable.getOffset() + content.size(), true);
+        }
+        if (pageable.getOffset() == 0 && content.isEmpty()) {
+            return new CountedPage<>(content, pageable, 0, true);
+        }
+
+        //추정 카운터는 member 테이블만 센다.
+        if (approximate && !hasText(condition.getUsername()) && !condition.isIncludeArchived() && estimator.isReady()) {
+            //추정값이 지금 보고 있는 페이지보다 작으면 페이지 자체가 이상해지므로 최소값을 보정한다.
+            long total = Math.max(estimator.estimate(condition), pageable.getOffset() + content.size());
+            return new CountedPage<>(content, pageable, total, false);
+        }
+        return new CountedPage<>(content, pageable, count(condition, countQuery), true);
+    }
+
+    public long count(MemberSearchCondition condition, LongSupplier countQuery) {
+        Key key = Key.of(condition);
+        long now = System.nanoTime();
+        Entry entry = cache.get(key);
+        if (entry != null && now - entry.getLoadedAtNanos() < ttlNanos) {
+            return entry.getTotal();
+        }
+
+        long loadGeneration = generation.get();
+        long total = countQuery.getAsLong();
+        if (cache.size() >= MAX_ENTRIES) {
+            cache.clear();
+        }
+        if (generation.get() == loadGeneration) {
+            cache.put(key, new Entry(total, now));
+        }
+        return total;
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    /**
+     * 쓰기 트랜잭션 안에서 부른다. flush 시점에 비워도 커밋 전에 시작한 count 는 예전 값을 읽어 새 세대로 캐시하므로
+     * 트랜잭션이 끝난 뒤에 한번 더 비운다. ({@link TableVersions#bump} 와 같다) 트랜잭션 밖이면 지금만 비운다.
+     */
+    public void invalidateAfterCompletion() {
+        invalidate();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate();
+                }
+            });
+        }
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    static class Key {
+        private final String username;
+        private final String teamName;
+        private final Integer ageGoe;
+        private final Integer ageLoe;
+        private final boolean includeArchived;
+
+        //검색에 쓰이지 않는 빈 문자열과 null 을 같은 키로 본다.
+        static Key of(MemberSearchCondition condition) {
+            return new Key(normalize(condition.getUsername()), normalize(condition.getTeamName()),
+                    condition.getAgeGoe(), condition.getAgeLoe(), condition.isIncludeArchived());
+        }
+
+        private static String normalize(String value) {
+            return hasText(value) ? value : null;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class Entry {
+        private final long total;
+        private final long loadedAtNanos;
+    }
+}
@@ -0,0 +1,122 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 팀명 x 나이 구간(10살 단위)별 회원 수 카운터로 검색 조건의 전체 건수를 쿼리 없이 추정한다.
+ * insert/delete 는 엔티티 리스너가 커밋 이후에 반영하고, update / 벌크 변경처럼 증감을 알 수 없는 변경은
+ * stale 표시 후 주기적인 group by 재집계로 맞춘다.
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberCountEstimator {
+
+    static final int AGE_BUCKET_WIDTH = 10;
+
+    private final JPAQueryFactory queryFactory;
+
+    private volatile Map<Bucket, LongAdder> counters = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    private final AtomicBoolean stale = new AtomicBoolean(true);
+
+    public void increment(String teamName, int age) {
+        counters.computeIfAbsent(new Bucket(teamName, age / AGE_BUCKET_WIDTH), key -> new LongAdder()).increment();
+    }
+
+    public void decrement(String teamName, int age) {
+        counters.computeIfAbsent(new Bucket(teamName, age / AGE_BUCKET_WIDTH), key -> new LongAdder()).decrement();
+    }
+
+    public void markStale() {
+        stale.set(true);
+    }
+
+    //커밋 전에 재집계가 돌면 예전 값을 읽고 stale 을 지우므로 트랜잭션이 끝난 뒤에도 다시 표시한다.
+    public void markStaleAfterCompletion() {
+        markStale();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    markStale();
+                }
+            });
+        }
+    }
+
+    //한번이라도 재집계가 끝나야 추정값을 쓸 수 있다.
+    public boolean isReady() {
+        return loaded;
+    }
+
+    @Scheduled(fixedDelayString = "${study.count.estimator-refresh-ms:30000}")
+    public void refreshIfStale() {
+        if (stale.compareAndSet(true, false)) {
+            refresh();
+        }
+    }
+
+    void refresh() {
+        Map<Bucket, LongAdder> fresh = new ConcurrentHashMap<>();
+        for (Tuple tuple : queryFactory.select(team.name, member.age, member.count())
+                .from(member)
+                .leftJoin(member.team, team)
+                .groupBy(team.name, member.age)
+                .fetch()) {
+            int age = tuple.get(member.age);
+            fresh.computeIfAbsent(new Bucket(tuple.get(team.name), age / AGE_BUCKET_WIDTH), key -> new LongAdder())
+                    .add(tuple.get(member.count()));
+        }
+        counters = fresh;
+        loaded = true;
+    }
+
+    /**
+     * 나이 범위가 구간 일부만 걸치면 구간 안에서 나이가 고르게 분포한다고 보고 비율만큼만 더한다.
+     * username 조건은 카운터로 추정할 수 없으므로 호출하는 쪽에서 걸러야 한다.
+     */
+    public long estimate(MemberSearchCondition condition) {
+        int ageGoe = condition.getAgeGoe() != null ? condition.getAgeGoe() : Integer.MIN_VALUE;
+        int ageLoe = condition.getAgeLoe() != null ? condition.getAgeLoe() : Integer.MAX_VALUE;
+
+        double total = 0;
+        for (Map.Entry<Bucket, LongAdder> entry : counters.entrySet()) {
+            Bucket bucket = entry.getKey();
+            if (hasText(condition.getTeamName()) && !condition.getTeamName().equals(bucket.getTeamName())) {
+                continue;
+            }
+            long bucketFrom = (long) bucket.getAgeBucket() * AGE_BUCKET_WIDTH;
+            long bucketTo = bucketFrom + AGE_BUCKET_WIDTH - 1;
+            long from = Math.max(bucketFrom, ageGoe);
+            long to = Math.min(bucketTo, ageLoe);
+            if (from > to) {
+                continue;
+            }
+            total += entry.getValue().sum() * (double) (to - from + 1) / AGE_BUCKET_WIDTH;
+        }
+        return Math.max(0, Math.round(total));
+    }
+
+    @Value
+    static class Bucket {
+        String teamName;
+        int ageBucket;
+    }
+}
@@ -0,0 +1,81 @@
+package study.querydsl.repository;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Member/Team 엔티티 리스너. 건수 캐시를 비우고 추정 카운터를 갱신한다.
+ * hibernate 가 SpringBeanContainer 로 생성하므로 주입이 가능하다.
+ * EntityManagerFactory 생성 중에 만들어지므로 다른 빈은 ObjectProvider 로 늦게 꺼낸다.
+ * post 콜백은 flush 시점(커밋 전)에 불리므로 카운터 증감은 커밋된 뒤에 반영하고, 캐시는 트랜잭션이 끝난 뒤에 한번 더 비운다.
+ */
+public class MemberCountListener {
+
+    private final ObjectProvider<MemberCountCache> countCache;
+    private final ObjectProvider<MemberCountEstimator> estimator;
+
+    public MemberCountListener(ObjectProvider<MemberCountCache> countCache,
+                               ObjectProvider<MemberCountEstimator> estimator) {
+        this.countCache = countCache;
+        this.estimator = estimator;
+    }
+
+    @PostPersist
+    public void postPersist(Object entity) {
+        if (entity instanceof Member) {
+            Member member = (Member) entity;
+            String teamName = teamName(member);
+            int age = member.getAge();
+            afterCommit(() -> estimator.ifAvailable(e -> e.increment(teamName, age)));
+        } else {
+            estimator.ifAvailable(MemberCountEstimator::markStaleAfterCompletion);
+        }
+        countCache.ifAvailable(MemberCountCache::invalidateAfterCompletion);
+    }
+
+    @PostRemove
+    public void postRemove(Object entity) {
+        if (entity instanceof Member) {
+            Member member = (Member) entity;
+            String teamName = teamName(member);
+            int age = member.getAge();
+            afterCommit(() -> estimator.ifAvailable(e -> e.decrement(teamName, age)));
+        } else {
+            estimator.ifAvailable(MemberCountEstimator::markStaleAfterCompletion);
+        }
+        countCache.ifAvailable(MemberCountCache::invalidateAfterCompletion);
+    }
+
+    //수정 전 값을 알 수 없으므로 재집계 대상으로만 표시한다.
+    @PostUpdate
+    public void postUpdate(Object entity) {
+        estimator.ifAvailable(MemberCountEstimator::markStaleAfterCompletion);
+        countCache.ifAvailable(MemberCountCache::invalidateAfterCompletion);
+    }
+
+    //롤백되면 반영하지 않는다. 트랜잭션 밖이면 바로 반영한다.
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static String teamName(Member member) {
+        Team team = member.getTeam();
+        return team != null ? team.getName() : null;
+    }
+}
@@ -2,17 +2,26 @@ package study.querydsl.repository;
 
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.hibernate.HibernateQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.annotations.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
 
 import javax.persistence.EntityManager;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.springframework.util.StringUtils.*;
 import static study.querydsl.entity.QMember.*;
@@ -22,8 +31,12 @@ import static study.querydsl.entity.QTeam.team;
 @RequiredArgsConstructor
 public class MemberJpaRepository {
 
+    private static final int FETCH_SIZE = 500;
+
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final TeamDictionary teamDictionary;
+    private final MemberRepositoryImpl memberRepositoryImpl;
 
     public void save(Member member) {
         em.persist(member);
@@ -34,28 +47,84 @@ public class MemberJpaRepository {
         return Optional.ofNullable(findMember);
     }
 
+    // 조회 전용 - readOnly 트랜잭션(flush 모드 MANUAL) + readOnly 힌트로 스냅샷을 만들지 않아 dirty checking 대상에서 빠진다.
+    @Transactional(readOnly = true)
     public List<Member> findAll() {
-        return em.createQuery("select m from Member m",Member.class).getResultList();
+        return em.createQuery("select m from Member m",Member.class)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .setHint(QueryHints.HINT_FETCH_SIZE, FETCH_SIZE)
+                .getResultList();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findAll_Querydsl() {
-        return queryFactory.selectFrom(member).fetch();
+        return queryFactory.selectFrom(member)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .setHint(QueryHints.HINT_FETCH_SIZE, FETCH_SIZE)
+                .fetch();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findByUsername(String username) {
         return em.createQuery("select m from Member m where m.username = :username",Member.class)
                 .setParameter("username",username)
+                .setHint(QueryHints.HINT_READONLY, true)
                 .getResultList();
     }
+
+    @Transactional(readOnly = true)
     public List<Member> findByUsername_Querydsl(String username) {
         return queryFactory
                 .selectFrom(member)
                 .where(member.username.eq(username))
+                .setHint(QueryHints.HINT_READONLY, true)
                 .fetch();
     }
 
+    /**
+     * 대량 조회용 - StatelessSession 으로 영속성 컨텍스트 없이 한 건씩 흘려보낸다.
+     * 1차 캐시/스냅샷이 없어 건수가 늘어도 메모리가 늘지 않는다.
+     * 넘겨받은 Member 는 준영속이라 team 은 지연로딩할 수 없다.
+     */
+    public long scanMembers(MemberSearchCondition condition, Consumer<Member> consumer) {
+        requireHotOnly(condition);
+        SessionFactory sessionFactory = em.getEntityManagerFactory().unwrap(SessionFactory.class);
+        long count = 0;
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            ScrollableResults results = new HibernateQuery<Member>(session)
+                    .select(member)
+                    .from(member)
+                    .where(usernameEq(condition.getUsername()),
+                            teamNameEq(condition.getTeamName()),
+                            ageGoe(condition.getAgeGoe()),
+                            ageLoe(condition.getAgeLoe()))
+                    .setFetchSize(FETCH_SIZE)
+                    .setReadOnly(true)
+                    .scroll(ScrollMode.FORWARD_ONLY);
+            try {
+                while (results.next()) {
+                    consumer.accept((Member) results.get(0));
+                    count++;
+                }
+            } finally {
+                results.close();
+            }
+        }
+        return count;
+    }
+
+    //IN 절 조각 조회는 MemberRepositoryImpl 한곳에만 구현하고 그대로 넘긴다.
+    public List<Member> findAllByIds(Collection<Long> ids) {
+        return memberRepositoryImpl.findAllByIds(ids);
+    }
+
+    public List<Member> findByUsernames(Collection<String> usernames) {
+        return memberRepositoryImpl.findByUsernames(usernames);
+    }
+
     //동적쿼리 - builder를 사용하는법
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition) {
+        requireHotOnly(condition);
 
         BooleanBuilder builder = new BooleanBuilder();
         if (hasText(condition.getUsername())) {
@@ -90,42 +159,48 @@ public class MemberJpaRepository {
 
     // 동적쿼리 - booleanBuilder를 사용하는것보다 메서드를 사용하는것이 가독성과 조립성이 증가됨.
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory.select(new QMemberTeamDto(
+        requireHotOnly(condition);
+        List<MemberTeamDto> content = queryFactory.select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
                         member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
+                        member.team.id.as("teamId")))
                 .from(member)
-                .leftJoin(member.team, team)
                 .where(usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()))
                 .fetch();
+        return teamDictionary.fillTeamNames(content);
     }
 
+    @Transactional(readOnly = true)
     public List<Member> searchMember(MemberSearchCondition condition) {
+        requireHotOnly(condition);
         return queryFactory.selectFrom(member)
-                .from(member)
-                .leftJoin(member.team, team)
                 .where(usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
-                        ageBetween(condition.getAgeLoe(), condition.getAgeGoe())
-                )
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()))
+                .setHint(QueryHints.HINT_READONLY, true)
+                .setHint(QueryHints.HINT_FETCH_SIZE, FETCH_SIZE)
                 .fetch();
     }
 
-    private BooleanExpression ageBetween(int ageLoe, int ageGoe) {
-        return ageGoe(ageLoe).and(ageGoe(ageGoe));
+    //이 저장소는 member(hot) 테이블만 읽는다. archive 를 포함한 검색은 MemberRepository 로 한다.
+    private static void requireHotOnly(MemberSearchCondition condition) {
+        if (condition.isIncludeArchived()) {
+            throw new InvalidSearchException("includeArchived 검색은 MemberRepository 검색(/v2 ~ /v5)에서만 지원합니다.");
+        }
     }
 
     private BooleanExpression usernameEq(String username) {
         return hasText(username) ? member.username.eq(username) : null;
     }
 
+    //team 조인 대신 사전에서 찾은 team id 로 거른다.
     private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
+        return teamDictionary.teamNameEq(teamName);
     }
 
     private BooleanExpression ageGoe(Integer ageGoe) {
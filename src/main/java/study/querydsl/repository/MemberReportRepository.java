@@ -0,0 +1,65 @@
+package study.querydsl.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import study.querydsl.dto.MemberAgeReportDto;
+
+import java.util.List;
+
+/**
+ * 팀별 나이 통계 리포트.
+ * member 마다 팀 max/avg 서브쿼리를 실행하는 대신 (select team_id, max, avg ... group by team_id) 를 한번 집계해서 member 와 조인한다.
+ * JPQL 은 from 절 서브쿼리(derived table)를 지원하지 않으므로 SQL 로 작성한다.
+ * jdbc 로 직접 읽으므로 같은 트랜잭션에서 flush 하지 않은 변경은 보이지 않는다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MemberReportRepository {
+
+    private static final String TEAM_STATS =
+            "(select team_id, max(age) max_age, avg(age * 1.0) avg_age from member group by team_id) s";
+
+    private static final String SELECT =
+            "select m.member_id, m.username, m.age, m.team_id, s.max_age, s.avg_age from member m ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TeamDictionary teamDictionary;
+
+    //팀에서 나이가 가장 많은 회원
+    public List<MemberAgeReportDto> membersAtTeamMaxAge() {
+        return query(SELECT + "join " + TEAM_STATS + " on s.team_id = m.team_id " +
+                "where m.age = s.max_age order by m.member_id");
+    }
+
+    //팀 평균 나이보다 많은 회원
+    public List<MemberAgeReportDto> membersAboveTeamAverage() {
+        return query(SELECT + "join " + TEAM_STATS + " on s.team_id = m.team_id " +
+                "where m.age > s.avg_age order by m.member_id");
+    }
+
+    //모든 회원 + 소속 팀의 최대/평균 나이. 팀이 없으면 null.
+    public List<MemberAgeReportDto> membersWithTeamStats() {
+        return query(SELECT + "left join " + TEAM_STATS + " on s.team_id = m.team_id " +
+                "order by m.member_id");
+    }
+
+    private List<MemberAgeReportDto> query(String sql) {
+        return jdbcTemplate.query(sql, rowMapper());
+    }
+
+    private RowMapper<MemberAgeReportDto> rowMapper() {
+        return (rs, rowNum) -> {
+            Long teamId = rs.getObject("team_id", Long.class);
+            return new MemberAgeReportDto(
+                    rs.getLong("member_id"),
+                    rs.getString("username"),
+                    rs.getInt("age"),
+                    teamId,
+                    teamDictionary.nameOf(teamId),
+                    rs.getObject("max_age", Integer.class),
+                    rs.getObject("avg_age") != null ? rs.getDouble("avg_age") : null);
+        };
+    }
+}
@@ -2,12 +2,21 @@ package study.querydsl.repository;
 
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import study.querydsl.entity.Member;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 
 public interface MemberRepository extends JpaRepository<Member,Long>, MemberRepositoryCustom {
 
     //select m from Member m where m.username = ?
+    @QueryHints(@QueryHint(name = org.hibernate.annotations.QueryHints.HINT_READONLY, value = "true"))
     List<Member> findByUsername(String username);
+
+    //SimpleJpaRepository 의 조회는 readOnly 트랜잭션이므로 힌트만 더한다.
+    @Override
+    @QueryHints({@QueryHint(name = org.hibernate.annotations.QueryHints.HINT_READONLY, value = "true"),
+            @QueryHint(name = org.hibernate.annotations.QueryHints.HINT_FETCH_SIZE, value = "500")})
+    List<Member> findAll();
 }
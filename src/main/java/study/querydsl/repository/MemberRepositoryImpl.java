@@ -1,24 +1,34 @@
 package study.querydsl.repository;
 
-import com.querydsl.core.QueryResults;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Repository;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 import static org.springframework.util.StringUtils.hasText;
 import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QMemberArchive.memberArchive;
 import static study.querydsl.entity.QTeam.team;
 
 @Repository
@@ -26,86 +36,293 @@ import static study.querydsl.entity.QTeam.team;
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
     private final JPAQueryFactory queryFactory;
+    private final MemberCountCache memberCountCache;
+    private final TeamDictionary teamDictionary;
+
+    //이 offset 부터는 id 를 먼저 자르는 deferred join 으로 조회한다.
+    @Value("${study.search.deferred-join-offset:1000}")
+    private long deferredJoinOffset = 1000;
 
     @Override
     // 동적쿼리 - booleanBuilder를 사용하는것보다 메서드를 사용하는것이 가독성과 조립성이 증가됨.
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory.select(new QMemberTeamDto(
+        List<MemberTeamDto> content = queryFactory.select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
                         member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
+                        member.team.id.as("teamId")))
                 .from(member)
-                .leftJoin(member.team, team)
                 .where(usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()))
                 .fetch();
+        if (condition.isIncludeArchived()) {
+            content = new ArrayList<>(content);
+            content.addAll(archiveQuery(condition).fetch());
+        }
+        return teamDictionary.fillTeamNames(content);
     }
 
     @Override
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-        QueryResults<MemberTeamDto> results = queryFactory.select(new QMemberTeamDto(
+        JPAQuery<MemberTeamDto> query = queryFactory.select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
                         member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
+                        member.team.id.as("teamId")))
                 .from(member)
-                .leftJoin(member.team, team)
                 .where(usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
+                        ageLoe(condition.getAgeLoe()));
+
+        if (condition.isIncludeArchived()) {
+            List<MemberTeamDto> content = fetchWithArchive(condition, pageable.getSort(), pageable.getOffset(), pageable.getPageSize());
+            return memberCountCache.getPage(content, pageable, condition,
+                    () -> query.fetchCount() + archiveQuery(condition).fetchCount());
+        }
+
+        List<MemberTeamDto> content = sorted(query.clone(), pageable.getSort())
                 .offset(pageable.getOffset())
                 .limit(pageable.getPageSize())
-                .fetchResults();
-
-        List<MemberTeamDto> content = results.getResults();
-        long total = results.getTotal();
+                .fetch();
+        teamDictionary.fillTeamNames(content);
 
-        return new PageImpl<>(content,pageable,total);
+        //같은 조건으로 페이지만 넘기는 경우 count 는 캐시된 값을 쓴다.
+        return memberCountCache.getPage(content, pageable, condition, query::fetchCount);
     }
 
     @Override
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> content = queryFactory.select(new QMemberTeamDto(
+        List<MemberTeamDto> content;
+        if (condition.isIncludeArchived()) {
+            content = fetchWithArchive(condition, pageable.getSort(), pageable.getOffset(), pageable.getPageSize());
+        } else {
+            content = pageable.getOffset() >= deferredJoinOffset
+                    ? fetchContentDeferredJoin(condition, pageable)
+                    : fetchContentOffset(condition, pageable);
+        }
+
+        JPAQuery<Member> countQuery = queryFactory.select(member)
+                .from(member)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())
+                );
+
+        return memberCountCache.getPage(content, pageable, condition, () -> condition.isIncludeArchived()
+                ? countQuery.fetchCount() + archiveQuery(condition).fetchCount()
+                : countQuery.fetchCount());
+    }
+
+    List<MemberTeamDto> fetchContentOffset(MemberSearchCondition condition, Pageable pageable) {
+        JPAQuery<MemberTeamDto> query = queryFactory.select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
                         member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
+                        member.team.id.as("teamId")))
                 .from(member)
-                .leftJoin(member.team, team)
                 .where(usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
+                        ageLoe(condition.getAgeLoe()));
+        List<MemberTeamDto> content = sorted(query, pageable.getSort())
                 .offset(pageable.getOffset())
                 .limit(pageable.getPageSize())
                 .fetch();
+        return teamDictionary.fillTeamNames(content);
+    }
 
-        JPAQuery<Member> countQuery = queryFactory.select(member)
+    /**
+     * offset 이 깊으면 조인된 전체 row 를 offset 만큼 읽고 버리는 비용이 커진다.
+     * 먼저 member id 만 (가능하면 인덱스만 읽어서) offset/limit 으로 자르고, 그 id 들에 대해서만 dto 를 만든다.
+     * 정렬은 id 쿼리에서만 하고, 두번째 쿼리 결과는 id 순서대로 다시 맞춘다.
+     */
+    List<MemberTeamDto> fetchContentDeferredJoin(MemberSearchCondition condition, Pageable pageable) {
+        JPAQuery<Long> idQuery = queryFactory.select(member.id)
                 .from(member)
-                .leftJoin(member.team, team)
-                .where(
+                .where(usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()));
+        List<Long> ids = sorted(idQuery, pageable.getSort())
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        List<MemberTeamDto> content = queryFactory.select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        member.team.id.as("teamId")))
+                .from(member)
+                .where(member.id.in(ids))
+                .fetch();
+
+        Map<Long, Integer> position = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            position.put(ids.get(i), i);
+        }
+        content.sort(Comparator.comparing(dto -> position.get(dto.getMemberId())));
+        return teamDictionary.fillTeamNames(content);
+    }
+
+    @Override
+    // count 쿼리 없이 limit + 1 건을 조회해서 다음 페이지 존재 여부만 판단한다.
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable) {
+        JPAQuery<MemberTeamDto> query = queryFactory.select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        member.team.id.as("teamId")))
+                .from(member)
+                .where(usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()));
+        List<MemberTeamDto> content = condition.isIncludeArchived()
+                ? fetchWithArchive(condition, pageable.getSort(), pageable.getOffset(), pageable.getPageSize() + 1)
+                : sorted(query, pageable.getSort())
+                        .offset(pageable.getOffset())
+                        .limit(pageable.getPageSize() + 1)
+                        .fetch();
+
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext) {
+            content = content.subList(0, pageable.getPageSize());
+        }
+        return new SliceImpl<>(teamDictionary.fillTeamNames(content), pageable, hasNext);
+    }
+
+    @Override
+    // keyset 페이징 - lastMemberId 다음부터 member id 순으로 limit 건. offset 이 없어 앞쪽 row 를 읽고 버리지 않는다.
+    public List<MemberTeamDto> searchAfter(MemberSearchCondition condition, Long lastMemberId, int limit) {
+        List<MemberTeamDto> content = queryFactory.select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        member.team.id.as("teamId")))
+                .from(member)
+                .where(lastMemberId != null ? member.id.gt(lastMemberId) : null,
                         usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                );
+                        ageLoe(condition.getAgeLoe()))
+                .orderBy(member.id.asc())
+                .limit(limit)
+                .fetch();
+        if (condition.isIncludeArchived()) {
+            //id 가 겹치지 않으므로 양쪽 limit 건을 id 순으로 합쳐 앞쪽 limit 건만 남긴다.
+            List<MemberTeamDto> archived = archiveQuery(condition)
+                    .where(lastMemberId != null ? memberArchive.id.gt(lastMemberId) : null)
+                    .orderBy(memberArchive.id.asc())
+                    .limit(limit)
+                    .fetch();
+            content = new ArrayList<>(content);
+            content.addAll(archived);
+            content.sort(Comparator.comparing(MemberTeamDto::getMemberId));
+            if (content.size() > limit) {
+                content = content.subList(0, limit);
+            }
+        }
+        return teamDictionary.fillTeamNames(content);
+    }
+
+    @Override
+    //여러 id를 IN 절 조각으로 나눠 조회하고, 입력 순서대로 돌려준다. 없는 id는 빠진다.
+    public List<Member> findAllByIds(Collection<Long> ids) {
+        Map<Long, Member> byId = new HashMap<>();
+        for (List<Long> chunk : InClauseChunks.split(ids)) {
+            for (Member findMember : queryFactory.selectFrom(member).where(member.id.in(chunk)).fetch()) {
+                byId.put(findMember.getId(), findMember);
+            }
+        }
+        return new LinkedHashSet<>(ids).stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
 
-        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchCount);
+    @Override
+    public List<Member> findByUsernames(Collection<String> usernames) {
+        Map<String, List<Member>> byUsername = new HashMap<>();
+        for (List<String> chunk : InClauseChunks.split(usernames)) {
+            List<Member> members = queryFactory.selectFrom(member)
+                    .where(member.username.in(chunk))
+                    .orderBy(member.id.asc())
+                    .fetch();
+            for (Member findMember : members) {
+                byUsername.computeIfAbsent(findMember.getUsername(), key -> new ArrayList<>()).add(findMember);
+            }
+        }
+        return new LinkedHashSet<>(usernames).stream()
+                .flatMap(username -> byUsername.getOrDefault(username, List.of()).stream())
+                .collect(Collectors.toList());
+    }
+
+    //pageable 정렬을 붙인다. teamName 정렬일 때만 team 을 조인한다.
+    private <T> JPAQuery<T> sorted(JPAQuery<T> query, Sort sort) {
+        if (MemberSort.needsTeamJoin(sort)) {
+            query.leftJoin(member.team, team);
+        }
+        return query.orderBy(MemberSort.orderBy(sort));
+    }
+
+    /**
+     * archive 를 포함한 페이지. member / member_archive 에서 각각 정렬된 앞쪽 offset + limit 건을 읽어 {@link TopN} 으로 다시 자른다.
+     * offset 이 깊을수록 양쪽에서 읽는 양이 늘지만, archive 는 명시적으로 요청할 때만 읽는다.
+     */
+    private List<MemberTeamDto> fetchWithArchive(MemberSearchCondition condition, Sort sort, long offset, int limit) {
+        JPAQuery<MemberTeamDto> hotQuery = queryFactory.select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        member.team.id.as("teamId")))
+                .from(member)
+                .where(usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()));
+        List<MemberTeamDto> rows = new ArrayList<>(sorted(hotQuery, sort).limit(offset + limit).fetch());
+
+        JPAQuery<MemberTeamDto> archiveQuery = archiveQuery(condition);
+        if (MemberSort.needsTeamJoin(sort)) {
+            archiveQuery.leftJoin(team).on(team.id.eq(memberArchive.teamId));
+        }
+        rows.addAll(archiveQuery.orderBy(MemberSort.orderByArchive(sort)).limit(offset + limit).fetch());
+
+        teamDictionary.fillTeamNames(rows);
+        return TopN.page(rows, MemberSort.comparator(sort), offset, limit);
+    }
+
+    //member_archive 에 같은 검색 조건을 건다. team 은 id 만 있으므로 사전으로 거른다.
+    private JPAQuery<MemberTeamDto> archiveQuery(MemberSearchCondition condition) {
+        return queryFactory.select(new QMemberTeamDto(
+                        memberArchive.id.as("memberId"),
+                        memberArchive.username,
+                        memberArchive.age,
+                        memberArchive.teamId.as("teamId")))
+                .from(memberArchive)
+                .where(hasText(condition.getUsername()) ? memberArchive.username.eq(condition.getUsername()) : null,
+                        hasText(condition.getTeamName()) ? memberArchive.teamId.in(teamDictionary.idsOf(condition.getTeamName())) : null,
+                        condition.getAgeGoe() != null ? memberArchive.age.goe(condition.getAgeGoe()) : null,
+                        condition.getAgeLoe() != null ? memberArchive.age.loe(condition.getAgeLoe()) : null);
     }
 
     private BooleanExpression usernameEq(String username) {
         return hasText(username) ? member.username.eq(username) : null;
     }
 
+    //team 조인 대신 사전에서 찾은 team id 로 거른다.
     private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
+        return teamDictionary.teamNameEq(teamName);
     }
 
     private BooleanExpression ageGoe(Integer ageGoe) {
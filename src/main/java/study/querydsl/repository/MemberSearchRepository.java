@@ -0,0 +1,20 @@
+package study.querydsl.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.List;
+
+/**
+ * member 검색. 단일 DB({@link MemberRepositoryImpl}) 와 샤드({@link ShardedMemberRepository}) 가 구현한다.
+ */
+public interface MemberSearchRepository {
+    List<MemberTeamDto> search(MemberSearchCondition condition);
+    Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
+    Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+    Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable);
+    List<MemberTeamDto> searchAfter(MemberSearchCondition condition, Long lastMemberId, int limit);
+}
@@ -0,0 +1,52 @@
+package study.querydsl.repository;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.List;
+
+/**
+ * 동일한 조건 + 페이지로 동시에 들어온 검색을 한번의 쿼리로 합친다.
+ * 샤드가 켜져 있으면({@link ShardedMemberRepository}) 샤드에서 검색한다. 샤드는 {@link ShardSynchronizer} 가 기본 DB 와 맞춘다.
+ */
+@Component
+public class MemberSearchSingleFlight {
+
+    private final MemberSearchRepository memberRepository;
+    private final SingleFlight<List<Object>, Object> singleFlight;
+
+    public MemberSearchSingleFlight(MemberRepository memberRepository,
+                                    ObjectProvider<ShardedMemberRepository> shardedMemberRepository,
+                                    @Value("${study.single-flight.max-wait-ms:2000}") long maxWaitMs) {
+        this.memberRepository = shardedMemberRepository.getIfAvailable(() -> memberRepository);
+        this.singleFlight = new SingleFlight<>(maxWaitMs);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        return (Page<MemberTeamDto>) singleFlight.execute(List.of("searchPageSimple", condition, pageable),
+                () -> memberRepository.searchPageSimple(condition, pageable));
+    }
+
+    @SuppressWarnings("unchecked")
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        return (Page<MemberTeamDto>) singleFlight.execute(List.of("searchPageComplex", condition, pageable),
+                () -> memberRepository.searchPageComplex(condition, pageable));
+    }
+
+    @SuppressWarnings("unchecked")
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable) {
+        return (Slice<MemberTeamDto>) singleFlight.execute(List.of("searchSlice", condition, pageable),
+                () -> memberRepository.searchSlice(condition, pageable));
+    }
+
+    public SingleFlight<List<Object>, Object> getSingleFlight() {
+        return singleFlight;
+    }
+}
@@ -0,0 +1,121 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import org.springframework.data.domain.Sort;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QMemberArchive.memberArchive;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * Pageable 의 Sort 를 member 검색 정렬로 바꾼다.
+ * 인덱스가 있는 속성만 허용하고(username, age, memberId, teamName) 그 외 속성은 {@link InvalidSearchException}.
+ * 같은 값이 여러 건이면 페이지 경계가 흔들리므로 항상 member id 를 마지막 정렬 기준으로 붙인다.
+ * (idx_member_age(age, member_id), idx_member_team_age(team_id, age, member_id) 가 이 순서를 그대로 가진다.)
+ * 정렬이 없으면 member id 순.
+ */
+final class MemberSort {
+
+    static final String MEMBER_ID = "memberId";
+    static final String TEAM_NAME = "teamName";
+
+    private static final Map<String, ComparableExpressionBase<?>> COLUMNS = Map.of(
+            "username", member.username,
+            "age", member.age,
+            MEMBER_ID, member.id,
+            TEAM_NAME, team.name);
+
+    private static final Map<String, ComparableExpressionBase<?>> ARCHIVE_COLUMNS = Map.of(
+            "username", memberArchive.username,
+            "age", memberArchive.age,
+            MEMBER_ID, memberArchive.id,
+            TEAM_NAME, team.name);
+
+    private static final Map<String, Function<MemberTeamDto, Comparable<?>>> PROPERTIES = Map.of(
+            "username", MemberTeamDto::getUsername,
+            "age", MemberTeamDto::getAge,
+            MEMBER_ID, MemberTeamDto::getMemberId,
+            TEAM_NAME, MemberTeamDto::getTeamName);
+
+    private MemberSort() {
+    }
+
+    static OrderSpecifier<?>[] orderBy(Sort sort) {
+        return orderBy(sort, COLUMNS, member.id);
+    }
+
+    //member_archive 검색용. 같은 속성/순서를 archive 컬럼으로 만든다. teamName 은 team_id 로 team 을 조인해야 한다.
+    static OrderSpecifier<?>[] orderByArchive(Sort sort) {
+        return orderBy(sort, ARCHIVE_COLUMNS, memberArchive.id);
+    }
+
+    private static OrderSpecifier<?>[] orderBy(Sort sort, Map<String, ComparableExpressionBase<?>> columns,
+                                               ComparableExpressionBase<Long> id) {
+        List<OrderSpecifier<?>> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            column(order.getProperty());
+            ComparableExpressionBase<?> column = columns.get(order.getProperty());
+            orders.add(order.isAscending() ? column.asc() : column.desc());
+        }
+        if (!sortsByMemberId(sort)) {
+            orders.add(id.asc());
+        }
+        return orders.toArray(new OrderSpecifier[0]);
+    }
+
+    //teamName 정렬만 team 조인이 필요하다. 나머지는 member 테이블만 읽는다.
+    static boolean needsTeamJoin(Sort sort) {
+        return sort.getOrderFor(TEAM_NAME) != null;
+    }
+
+    /**
+     * 메모리에 있는 결과를 DB 와 같은 순서로 정렬할 때 쓴다.
+     * null 은 가장 작은 값으로 본다. (H2 기본 정렬과 같다)
+     */
+    static Comparator<MemberTeamDto> comparator(Sort sort) {
+        Comparator<MemberTeamDto> comparator = null;
+        for (Sort.Order order : sort) {
+            column(order.getProperty());
+            Comparator<MemberTeamDto> next = comparing(PROPERTIES.get(order.getProperty()));
+            next = order.isAscending() ? next : next.reversed();
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        if (!sortsByMemberId(sort)) {
+            Comparator<MemberTeamDto> byId = comparing(PROPERTIES.get(MEMBER_ID));
+            comparator = comparator == null ? byId : comparator.thenComparing(byId);
+        }
+        return comparator;
+    }
+
+    //허용하지 않은 속성이면 InvalidSearchException
+    static void validate(Sort sort) {
+        for (Sort.Order order : sort) {
+            column(order.getProperty());
+        }
+    }
+
+    private static boolean sortsByMemberId(Sort sort) {
+        return sort.getOrderFor(MEMBER_ID) != null;
+    }
+
+    private static ComparableExpressionBase<?> column(String property) {
+        ComparableExpressionBase<?> column = COLUMNS.get(property);
+        if (column == null) {
+            throw new InvalidSearchException("정렬할 수 없는 속성입니다: " + property + " (가능: " + COLUMNS.keySet() + ")");
+        }
+        return column;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<MemberTeamDto> comparing(Function<MemberTeamDto, Comparable<?>> property) {
+        return Comparator.comparing((Function) property, Comparator.nullsFirst(Comparator.naturalOrder()));
+    }
+}
@@ -0,0 +1,244 @@
+package study.querydsl.repository;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * member 검색 결과를 backpressure 가 있는 {@link Flow.Publisher} 로 내보낸다.
+ * 구독자가 request 한 만큼만 내보내고, 버퍼가 비었을 때만 다음 chunk 를 keyset 으로 조회한다.
+ * DB 조회/전달은 작은 고정 스레드풀에서 하고 chunk 사이에는 커넥션을 잡지 않는다.
+ * 구독당 메모리는 chunk 하나, 느린 구독자가 많아도 스레드는 풀 크기를 넘지 않는다.
+ * 한번 실행될 때 chunk 하나만 처리하고 다시 큐에 넣어서 구독끼리 스레드를 나눠 쓴다.
+ * 큐가 꽉 차면 구독은 RejectedExecutionException 으로 끝난다.
+ * 전달(onNext 등)도 이 풀에서 하므로 구독자는 막히면 안 된다. 느린 소켓 쓰기는 구독자 쪽에서 다른 스레드로 넘긴다. (NdjsonEmitterSubscriber)
+ * 샤드가 켜져 있으면({@link ShardedMemberRepository}) 샤드에서 읽는다.
+ */
+@Component
+public class MemberStreamingSearch {
+
+    private final MemberSearchRepository memberRepository;
+    private final int chunkSize;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder emitted = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    @Autowired
+    public MemberStreamingSearch(MemberRepository memberRepository,
+                                 ObjectProvider<ShardedMemberRepository> shardedMemberRepository,
+                                 @Value("${study.streaming.chunk-size:200}") int chunkSize,
+                                 @Value("${study.streaming.threads:2}") int threads,
+                                 @Value("${study.streaming.queue-capacity:256}") int queueCapacity) {
+        this(shardedMemberRepository.getIfAvailable(() -> memberRepository), chunkSize, threads, queueCapacity);
+    }
+
+    public MemberStreamingSearch(MemberSearchRepository memberRepository, int chunkSize, int threads, int queueCapacity) {
+        this.memberRepository = memberRepository;
+        this.chunkSize = chunkSize;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "member-streaming-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Flow.Publisher<MemberTeamDto> search(MemberSearchCondition condition) {
+        return subscriber -> {
+            SearchSubscription subscription = new SearchSubscription(condition, subscriber);
+            active.incrementAndGet();
+            subscriber.onSubscribe(subscription);
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("active", active.get());
+        stats.put("chunks", chunks.sum());
+        stats.put("emitted", emitted.sum());
+        stats.put("cancelled", cancelled.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("queued", executor.getQueue().size());
+        return stats;
+    }
+
+    /**
+     * request / cancel 은 아무 스레드에서나 불리고, 실제 전달(onNext/onError/onComplete)은 wip 카운터로 한 스레드씩만 한다.
+     * buffer / lastMemberId / exhausted / done 은 그 실행 안에서만 건드린다.
+     */
+    private class SearchSubscription implements Flow.Subscription, Runnable {
+
+        private final MemberSearchCondition condition;
+        private final Flow.Subscriber<? super MemberTeamDto> subscriber;
+
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+
+        private final ArrayDeque<MemberTeamDto> buffer = new ArrayDeque<>();
+        private Long lastMemberId;
+        private boolean exhausted;
+        private boolean done;
+
+        SearchSubscription(MemberSearchCondition condition, Flow.Subscriber<? super MemberTeamDto> subscriber) {
+            this.condition = condition;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                //Reactive Streams 3.9 - onError 는 전달 스레드에서 보낸다.
+                error = new IllegalArgumentException("request 는 0 보다 커야 합니다: " + n);
+                schedule();
+                return;
+            }
+            requested.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                MemberStreamingSearch.this.cancelled.increment();
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    //wip 를 가진 채로 끝내므로 이후 전달은 실행되지 않는다.
+                    rejected.increment();
+                    cancelled = true;
+                    finish();
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            for (;;) {
+                if (drain()) {
+                    //chunk 하나를 처리했으면 다른 구독에 스레드를 양보하고 다시 줄을 선다.
+                    //wip 를 놓지 않으므로 그 사이 request / cancel 은 wip 만 올리고 다음 실행에서 처리된다.
+                    resubmit();
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        //wip 를 가진 전달 스레드에서만 부른다. 거절되면 이 스레드가 그대로 끝낸다.
+        private void resubmit() {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                cancelled = true;
+                finish();
+                subscriber.onError(e);
+            }
+        }
+
+        //남은 요청이 있는데 chunk 를 하나 처리해서 멈춘 경우 true
+        private boolean drain() {
+            if (done) {
+                return false;
+            }
+            if (error != null) {
+                finish();
+                subscriber.onError(error);
+                return false;
+            }
+            if (cancelled) {
+                finish();
+                return false;
+            }
+
+            if (buffer.isEmpty() && !exhausted && requested.get() > 0) {
+                List<MemberTeamDto> chunk;
+                try {
+                    chunk = memberRepository.searchAfter(condition, lastMemberId, chunkSize);
+                } catch (RuntimeException e) {
+                    finish();
+                    subscriber.onError(e);
+                    return false;
+                }
+                chunks.increment();
+                exhausted = chunk.size() < chunkSize;
+                if (!chunk.isEmpty()) {
+                    lastMemberId = chunk.get(chunk.size() - 1).getMemberId();
+                }
+                buffer.addAll(chunk);
+            }
+
+            long r = requested.get();
+            long sent = 0;
+            while (sent < r && !buffer.isEmpty() && !cancelled) {
+                subscriber.onNext(buffer.poll());
+                sent++;
+            }
+            if (sent > 0) {
+                emitted.add(sent);
+                if (r != Long.MAX_VALUE) {
+                    requested.addAndGet(-sent);
+                }
+            }
+
+            if (cancelled) {
+                finish();
+                return false;
+            }
+            if (buffer.isEmpty() && exhausted) {
+                finish();
+                subscriber.onComplete();
+                return false;
+            }
+            return buffer.isEmpty() && requested.get() > 0;
+        }
+
+        private void finish() {
+            if (!done) {
+                done = true;
+                buffer.clear();
+                active.decrementAndGet();
+            }
+        }
+    }
+}
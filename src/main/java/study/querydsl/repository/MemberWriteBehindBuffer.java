@@ -0,0 +1,159 @@
+package study.querydsl.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import study.querydsl.change.ChangeEventBus;
+import study.querydsl.change.ChangeOp;
+import study.querydsl.change.ChangeTable;
+
+import javax.annotation.PreDestroy;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * member 의 age / team 변경을 메모리에 모아뒀다가 주기적으로 jdbc batch update 로 한번에 반영한다.
+ * 같은 member 에 대한 변경은 마지막 값으로 합쳐지므로 자주 바뀌는 row 의 락 경합이 줄어든다.
+ *
+ * 영속성 컨텍스트를 거치지 않으므로 이미 로딩된 엔티티에는 반영되지 않는다.
+ * study.write-behind.enabled=true 일때만 등록된다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "study.write-behind", name = "enabled", havingValue = "true")
+public class MemberWriteBehindBuffer {
+
+    private static final String UPDATE_SQL =
+            "update member set age = coalesce(?, age), team_id = coalesce(?, team_id), last_active_at = current_timestamp " +
+                    "where member_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MemberCountCache memberCountCache;
+    private final MemberCountEstimator memberCountEstimator;
+    private final TableVersions tableVersions;
+    private final ChangeEventBus changeEventBus;
+
+    //ConcurrentHashMap 은 bin 단위로 락을 나눠서 잡으므로 서로 다른 member 에 대한 변경은 경합하지 않는다.
+    private final ConcurrentHashMap<Long, PendingUpdate> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final AtomicLong lastFlushLagNanos = new AtomicLong();
+    private final AtomicLong maxFlushLagNanos = new AtomicLong();
+
+    public void updateAge(Long memberId, int age) {
+        enqueue(memberId, new PendingUpdate(age, null, System.nanoTime()));
+    }
+
+    public void changeTeam(Long memberId, Long teamId) {
+        enqueue(memberId, new PendingUpdate(null, teamId, System.nanoTime()));
+    }
+
+    private void enqueue(Long memberId, PendingUpdate update) {
+        enqueued.increment();
+        pending.merge(memberId, update, PendingUpdate::mergeNewer);
+    }
+
+    @Scheduled(fixedDelayString = "${study.write-behind.flush-interval-ms:200}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        //remove 로 꺼내야 flush 도중 들어온 변경이 유실되지 않고 다음 flush 로 넘어간다.
+        List<Map.Entry<Long, PendingUpdate>> batch = new ArrayList<>();
+        for (Long id : pending.keySet()) {
+            PendingUpdate update = pending.remove(id);
+            if (update != null) {
+                batch.add(Map.entry(id, update));
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, batch, batch.size(), (ps, entry) -> {
+                ps.setObject(1, entry.getValue().getAge(), Types.INTEGER);
+                ps.setObject(2, entry.getValue().getTeamId(), Types.BIGINT);
+                ps.setLong(3, entry.getKey());
+            });
+        } catch (RuntimeException e) {
+            //실패한 변경은 다시 넣되, 그 사이 들어온 더 최신 변경이 있으면 그쪽을 우선한다.
+            for (Map.Entry<Long, PendingUpdate> entry : batch) {
+                pending.merge(entry.getKey(), entry.getValue(), (newer, failed) -> failed.mergeNewer(newer));
+            }
+            throw e;
+        }
+
+        long now = System.nanoTime();
+        long lag = 0;
+        for (Map.Entry<Long, PendingUpdate> entry : batch) {
+            lag = Math.max(lag, now - entry.getValue().getFirstEnqueuedNanos());
+        }
+        //jdbc 로 직접 반영하므로 엔티티 리스너가 돌지 않는다.
+        memberCountCache.invalidate();
+        memberCountEstimator.markStale();
+        tableVersions.bump(TableVersions.MEMBER);
+        long columns = changeEventBus.columnsOf(ChangeTable.MEMBER, "age", "team");
+        for (Map.Entry<Long, PendingUpdate> entry : batch) {
+            changeEventBus.publish(ChangeTable.MEMBER, ChangeOp.UPDATE, entry.getKey(), columns);
+        }
+
+        flushedRows.add(batch.size());
+        lastFlushLagNanos.set(lag);
+        maxFlushLagNanos.accumulateAndGet(lag, Math::max);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        log.info("write-behind flush on shutdown. pending = {}", pending.size());
+        flush();
+    }
+
+    public Stats stats() {
+        long enqueuedCount = enqueued.sum();
+        long flushedCount = flushedRows.sum();
+        return new Stats(enqueuedCount, flushedCount, pending.size(),
+                flushedCount == 0 ? 0 : (double) enqueuedCount / flushedCount,
+                TimeUnit.NANOSECONDS.toMillis(lastFlushLagNanos.get()),
+                TimeUnit.NANOSECONDS.toMillis(maxFlushLagNanos.get()));
+    }
+
+    @Value
+    static class PendingUpdate {
+        Integer age;
+        Long teamId;
+        long firstEnqueuedNanos;
+
+        //새로 들어온 값이 있는 컬럼만 덮어쓰고, 최초 적재 시각은 유지한다.
+        PendingUpdate mergeNewer(PendingUpdate newer) {
+            return new PendingUpdate(
+                    newer.age != null ? newer.age : age,
+                    newer.teamId != null ? newer.teamId : teamId,
+                    Math.min(firstEnqueuedNanos, newer.firstEnqueuedNanos));
+        }
+    }
+
+    @Value
+    public static class Stats {
+        long enqueued;
+        long flushedRows;
+        int pending;
+        //enqueue 횟수 / 실제 update row 수. 클수록 많이 합쳐졌다는 의미
+        double coalescingRatio;
+        long lastFlushLagMs;
+        long maxFlushLagMs;
+    }
+}
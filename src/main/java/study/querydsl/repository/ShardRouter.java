@@ -0,0 +1,106 @@
+package study.querydsl.repository;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * member 샤드 목록과 라우팅. 샤드 = team_id % 샤드 수, 팀이 없는 member 는 member_id % 샤드 수.
+ * 같은 팀 member 는 한 샤드에 모이므로 팀 조건이 있는 검색은 그 팀들의 샤드만 읽으면 된다.
+ * 샤드 수를 바꾸면 데이터를 다시 나눠야 한다.
+ * 샤드 DataSource 는 빈으로 등록하지 않는다. (기본 DataSource 자동설정이 꺼지지 않도록)
+ * 샤드의 member 테이블은 기본 DB member 의 검색 컬럼만 가진다. 쓰기는 기본 DB 에 하고 {@link ShardSynchronizer} 가 옮긴다.
+ */
+@Component
+@ConditionalOnProperty(prefix = "study.shard", name = "enabled", havingValue = "true")
+public class ShardRouter {
+
+    private final List<Shard> shards = new ArrayList<>();
+
+    public ShardRouter(@Value("${study.shard.urls}") String[] urls,
+                       @Value("${study.shard.username:sa}") String username,
+                       @Value("${study.shard.password:}") String password,
+                       @Value("${study.shard.pool-size:4}") int poolSize) {
+        if (urls.length == 0) {
+            throw new IllegalStateException("study.shard.urls 가 비어있습니다.");
+        }
+        for (int i = 0; i < urls.length; i++) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("shard-" + i);
+            config.setJdbcUrl(urls[i].trim());
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setMaximumPoolSize(poolSize);
+            shards.add(new Shard(i, new HikariDataSource(config)));
+        }
+    }
+
+    @PostConstruct
+    public void createSchema() {
+        for (Shard shard : shards) {
+            JdbcTemplate jdbcTemplate = shard.getJdbcTemplate().getJdbcTemplate();
+            jdbcTemplate.execute("create table if not exists member (" +
+                    "member_id bigint primary key, username varchar(255), age integer not null, team_id bigint)");
+            jdbcTemplate.execute("create index if not exists idx_member_username on member (username)");
+            jdbcTemplate.execute("create index if not exists idx_member_team_age on member (team_id, age, member_id)");
+            jdbcTemplate.execute("create index if not exists idx_member_age on member (age, member_id)");
+        }
+    }
+
+    public List<Shard> all() {
+        return shards;
+    }
+
+    public Shard shardFor(Long teamId, long memberId) {
+        return shards.get((int) Math.floorMod(teamId != null ? teamId : memberId, (long) shards.size()));
+    }
+
+    public List<Shard> shardsForTeams(Collection<Long> teamIds) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (Long teamId : teamIds) {
+            indexes.add((int) Math.floorMod(teamId, (long) shards.size()));
+        }
+        List<Shard> result = new ArrayList<>(indexes.size());
+        for (Integer index : indexes) {
+            result.add(shards.get(index));
+        }
+        return result;
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Shard shard : shards) {
+            shard.dataSource.close();
+        }
+    }
+
+    @Getter
+    public static class Shard {
+        private final int index;
+        private final NamedParameterJdbcTemplate jdbcTemplate;
+        private final HikariDataSource dataSource;
+
+        Shard(int index, HikariDataSource dataSource) {
+            this.index = index;
+            this.dataSource = dataSource;
+            this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        }
+
+        @Override
+        public String toString() {
+            return "shard-" + index;
+        }
+    }
+}
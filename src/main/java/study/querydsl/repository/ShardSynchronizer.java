@@ -0,0 +1,231 @@
+package study.querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.change.ChangeBatch;
+import study.querydsl.change.ChangeEventBus;
+import study.querydsl.change.ChangeTable;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.ShardRouter.Shard;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * 기본 DB 의 member 쓰기를 샤드로 옮긴다. 기본 DB 가 원본이고 샤드는 team 기준으로 나눠 둔 검색용 사본이다.
+ * - JPA 저장/삭제, write-behind, 벌크 update/delete, archive 는 모두 커밋 이후 {@link ChangeEventBus} 로 변경이 들어온다.
+ * - 바뀐 member id 를 모아두고 전용 스레드 하나에서 기본 DB 의 현재 row 를 다시 읽어 모든 샤드에서 지우고 라우팅된 샤드에 넣는다.
+ *   (team 이 바뀌면 샤드가 바뀌므로 항상 지우고 넣는다. 기본 DB 에 없으면 지우기만 한다. 샤드를 옮기는 row 는 잠깐 양쪽에 보이거나 안 보일 수 있다)
+ * - 대상 row 를 모르는 벌크 변경이나 링이 넘쳐 잃은 변경이 있으면 전체를 다시 복사한다. 기동 직후에도 한번 전체 복사한다.
+ * 작업은 한 스레드에서 순서대로 하므로 나중에 읽은 기본 DB 상태가 항상 마지막에 반영된다.
+ * 커밋 직후 잠깐은 샤드가 뒤처질 수 있다. 반영할 때마다 member 버전을 올려서 그 사이 만든 ETag 가 재사용되지 않게 한다.
+ * 이벤트를 만들지 않는 jdbc 직접 쓰기(픽스처 등) 뒤에는 {@link #resync()} 를 불러야 한다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "study.shard", name = "enabled", havingValue = "true")
+public class ShardSynchronizer {
+
+    private static final int COPY_CHUNK = 1000;
+
+    private static final String SELECT = "select member_id, username, age, team_id from member";
+
+    private static final RowMapper<MemberTeamDto> ROW_MAPPER = (rs, rowNum) -> new MemberTeamDto(
+            rs.getLong("member_id"),
+            rs.getString("username"),
+            rs.getInt("age"),
+            rs.getObject("team_id", Long.class));
+
+    private final ShardRouter router;
+    private final NamedParameterJdbcTemplate primary;
+    private final TableVersions tableVersions;
+    private final ChangeEventBus changeEventBus;
+    private final Map<Shard, TransactionTemplate> transactions = new HashMap<>();
+    private final Consumer<ChangeBatch> subscriber = this::onChange;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "member-shard-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Set<Long> pendingIds = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean pendingResync = new AtomicBoolean();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private final LongAdder syncedRows = new LongAdder();
+    private final LongAdder resyncs = new LongAdder();
+    private final AtomicLong lastSyncAtMillis = new AtomicLong();
+
+    public ShardSynchronizer(ShardRouter router, NamedParameterJdbcTemplate primary, TableVersions tableVersions,
+                             ChangeEventBus changeEventBus) {
+        this.router = router;
+        this.primary = primary;
+        this.tableVersions = tableVersions;
+        this.changeEventBus = changeEventBus;
+        for (Shard shard : router.all()) {
+            transactions.put(shard, new TransactionTemplate(new DataSourceTransactionManager(shard.getDataSource())));
+        }
+        changeEventBus.subscribe(subscriber);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialResync() {
+        pendingResync.set(true);
+        schedule();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        changeEventBus.unsubscribe(subscriber);
+        executor.shutdownNow();
+    }
+
+    /**
+     * 샤드를 기본 DB 와 같게 다시 복사하고 끝날 때까지 기다린다. 앞서 모아둔 변경도 같이 반영된다.
+     */
+    public void resync() {
+        pendingResync.set(true);
+        CompletableFuture.runAsync(this::drain, executor).join();
+    }
+
+    //전달 스레드에서 불린다. 모으기만 하고 실제 반영은 동기화 스레드에서 한다.
+    private void onChange(ChangeBatch batch) {
+        boolean changed = false;
+        if (batch.dropped() > 0) {
+            pendingResync.set(true);
+            changed = true;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.table(i) != ChangeTable.MEMBER) {
+                continue;
+            }
+            if (batch.id(i) == ChangeEventBus.ALL_ROWS) {
+                pendingResync.set(true);
+            } else {
+                pendingIds.add(batch.id(i));
+            }
+            changed = true;
+        }
+        if (changed) {
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                //실행 전에 풀어야 실행 중에 들어온 변경이 다음 실행으로 이어진다.
+                scheduled.set(false);
+                drain();
+            });
+        }
+    }
+
+    private void drain() {
+        try {
+            if (pendingResync.getAndSet(false)) {
+                pendingIds.clear();
+                copyAll();
+            } else if (!pendingIds.isEmpty()) {
+                List<Long> ids = new ArrayList<>(pendingIds);
+                pendingIds.removeAll(ids);
+                syncIds(ids);
+            } else {
+                return;
+            }
+            lastSyncAtMillis.set(System.currentTimeMillis());
+            tableVersions.bump(TableVersions.MEMBER);
+        } catch (RuntimeException e) {
+            //어떤 row 가 반영됐는지 알 수 없으므로 다음 실행에서 전체를 다시 복사한다.
+            log.warn("shard sync failed. full resync scheduled", e);
+            pendingResync.set(true);
+            throw e;
+        }
+    }
+
+    //샤드마다 한 트랜잭션에서 지우고 넣으므로 검색 중에 row 가 잠깐 빠져 보이지 않는다.
+    private void syncIds(List<Long> ids) {
+        for (List<Long> chunk : InClauseChunks.split(ids)) {
+            List<MemberTeamDto> rows = primary.query(SELECT + " where member_id in (:ids)",
+                    new MapSqlParameterSource("ids", chunk), ROW_MAPPER);
+            replace(rows, "member_id in (:ids)", new MapSqlParameterSource("ids", chunk));
+        }
+    }
+
+    //id 구간마다 샤드의 구간을 지우고 기본 DB 의 구간으로 채운다. 샤드를 먼저 비우지 않으므로 복사 중에도 검색할 수 있다.
+    private void copyAll() {
+        long from = Long.MIN_VALUE;
+        while (true) {
+            List<MemberTeamDto> rows = primary.query(SELECT + " where member_id > :from " +
+                            "order by member_id limit :limit",
+                    new MapSqlParameterSource()
+                            .addValue("from", from)
+                            .addValue("limit", COPY_CHUNK), ROW_MAPPER);
+            boolean last = rows.size() < COPY_CHUNK;
+            long to = last ? Long.MAX_VALUE : rows.get(rows.size() - 1).getMemberId();
+            replace(rows, "member_id > :from and member_id <= :to", new MapSqlParameterSource()
+                    .addValue("from", from)
+                    .addValue("to", to));
+            if (last) {
+                break;
+            }
+            from = to;
+        }
+        resyncs.increment();
+    }
+
+    private void replace(List<MemberTeamDto> rows, String range, MapSqlParameterSource rangeParams) {
+        Map<Shard, List<MemberTeamDto>> byShard = rows.stream()
+                .collect(Collectors.groupingBy(dto -> router.shardFor(dto.getTeamId(), dto.getMemberId())));
+        for (Shard shard : router.all()) {
+            SqlParameterSource[] batch = byShard.getOrDefault(shard, List.of()).stream()
+                    .map(dto -> new MapSqlParameterSource()
+                            .addValue("memberId", dto.getMemberId())
+                            .addValue("username", dto.getUsername())
+                            .addValue("age", dto.getAge())
+                            .addValue("teamId", dto.getTeamId()))
+                    .toArray(SqlParameterSource[]::new);
+            transactions.get(shard).executeWithoutResult(status -> {
+                shard.getJdbcTemplate().update("delete from member where " + range, rangeParams);
+                if (batch.length > 0) {
+                    shard.getJdbcTemplate().batchUpdate("insert into member (member_id, username, age, team_id) " +
+                            "values (:memberId, :username, :age, :teamId)", batch);
+                }
+            });
+        }
+        syncedRows.add(rows.size());
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pendingIds", pendingIds.size());
+        stats.put("pendingResync", pendingResync.get());
+        stats.put("syncedRows", syncedRows.sum());
+        stats.put("resyncs", resyncs.sum());
+        stats.put("lastSyncAtMillis", lastSyncAtMillis.get());
+        return stats;
+    }
+}
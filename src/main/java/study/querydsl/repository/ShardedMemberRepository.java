@@ -0,0 +1,281 @@
+package study.querydsl.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.stereotype.Repository;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.ShardRouter.Shard;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * team 기준으로 여러 DB 에 나눠진 member 검색 (scatter-gather).
+ * 대상 샤드에 같은 SQL 을 병렬로 보내고 결과를 합친다.
+ * - 팀 이름 조건이 있으면 {@link TeamDictionary} 로 team id 를 찾아 그 팀이 있는 샤드만 읽는다.
+ * - 페이지는 샤드마다 정렬된 앞쪽 offset + size 건만 받아서 {@link TopN} 으로 다시 자른다. offset 이 깊을수록 샤드마다 읽는 양이 는다.
+ * - 전체 건수는 샤드별 count 의 합.
+ * team 테이블은 기본 DB 에만 있으므로 teamName 은 사전으로 채운다. teamName 정렬은 팀 이름 조건이 있을 때만 된다.
+ * (조건이 있으면 모든 row 의 팀 이름이 같아 정렬에서 빼고, 없으면 {@link InvalidSearchException} - 팀 전체 순위를 SQL 에 넣지 않는다)
+ * null 정렬 순서는 H2 기준(가장 작은 값)으로 {@link MemberSort#comparator} 와 맞춘다.
+ * 샤드는 기본 DB 의 사본이고 {@link ShardSynchronizer} 가 커밋된 변경을 옮긴다. 커밋 직후 잠깐은 이전 값이 보일 수 있다.
+ * member_archive 는 기본 DB 에만 있으므로 includeArchived 검색은 {@link InvalidSearchException} 으로 거절한다.
+ * study.shard.enabled=true 일때만 등록되고, 그 경우 /v1 ~ /v5 검색이 모두 이 저장소를 쓴다.
+ */
+@Repository
+@ConditionalOnProperty(prefix = "study.shard", name = "enabled", havingValue = "true")
+public class ShardedMemberRepository implements MemberSearchRepository {
+
+    private static final String SELECT = "select member_id, username, age, team_id from member";
+
+    private static final Map<String, String> COLUMNS = Map.of(
+            "username", "username",
+            "age", "age",
+            MemberSort.MEMBER_ID, "member_id");
+
+    private static final RowMapper<MemberTeamDto> ROW_MAPPER = (rs, rowNum) -> new MemberTeamDto(
+            rs.getLong("member_id"),
+            rs.getString("username"),
+            rs.getInt("age"),
+            rs.getObject("team_id", Long.class));
+
+    private final ShardRouter router;
+    private final TeamDictionary teamDictionary;
+    private final ExecutorService executor;
+
+    public ShardedMemberRepository(ShardRouter router, TeamDictionary teamDictionary,
+                                   @Value("${study.shard.threads:0}") int threads) {
+        this.router = router;
+        this.teamDictionary = teamDictionary;
+        int size = threads > 0 ? threads : router.all().size() * 2;
+        this.executor = Executors.newFixedThreadPool(size, runnable -> {
+            Thread thread = new Thread(runnable, "member-shard-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        Plan plan = plan(condition);
+        if (plan.targets.isEmpty()) {
+            return List.of();
+        }
+        List<MemberTeamDto> content = plan.fetch(Sort.unsorted(), -1);
+        content.sort(MemberSort.comparator(Sort.unsorted()));
+        return content;
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        Plan plan = plan(condition);
+        if (plan.targets.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        if (pageable.isUnpaged()) {
+            List<MemberTeamDto> content = plan.fetch(pageable.getSort(), -1);
+            content.sort(MemberSort.comparator(pageable.getSort()));
+            return new PageImpl<>(content, pageable, content.size());
+        }
+
+        List<MemberTeamDto> content = plan.page(pageable.getSort(), pageable.getOffset(), pageable.getPageSize());
+        //마지막 페이지처럼 content 로 전체 건수를 알 수 있으면 count 를 생략한다.
+        return PageableExecutionUtils.getPage(content, pageable, plan::count);
+    }
+
+    //샤드 안에서는 offset 이 없으므로 deferred join 이 의미가 없다. searchPageSimple 과 같다.
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        return searchPageSimple(condition, pageable);
+    }
+
+    @Override
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable) {
+        Plan plan = plan(condition);
+        if (plan.targets.isEmpty()) {
+            return new SliceImpl<>(List.of(), pageable, false);
+        }
+        List<MemberTeamDto> content = plan.page(pageable.getSort(), pageable.getOffset(), pageable.getPageSize() + 1);
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext) {
+            content = content.subList(0, pageable.getPageSize());
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    /**
+     * keyset 페이징. 샤드마다 lastMemberId 다음 limit 건을 받아 id 순으로 합치고 앞쪽 limit 건만 남긴다.
+     */
+    @Override
+    public List<MemberTeamDto> searchAfter(MemberSearchCondition condition, Long lastMemberId, int limit) {
+        Plan plan = plan(condition);
+        if (plan.targets.isEmpty()) {
+            return List.of();
+        }
+        return plan.after(lastMemberId, limit);
+    }
+
+    /**
+     * 샤드에서 할 수 없는 검색이면 {@link InvalidSearchException}. (스트리밍처럼 응답을 시작하기 전에 거절해야 하는 곳에서 미리 부른다)
+     */
+    public void validate(MemberSearchCondition condition) {
+        if (condition.isIncludeArchived()) {
+            //member_archive 는 기본 DB 에만 있다.
+            throw new InvalidSearchException("샤드 검색(study.shard.enabled)에서는 includeArchived 를 지원하지 않습니다.");
+        }
+    }
+
+    /**
+     * 검색 조건을 where 절과 대상 샤드로 바꾼다. 없는 팀 이름이면 대상 샤드가 없다.
+     */
+    private Plan plan(MemberSearchCondition condition) {
+        validate(condition);
+        StringJoiner where = new StringJoiner(" and ", " where ", "").setEmptyValue("");
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        List<Shard> targets = router.all();
+
+        if (hasText(condition.getUsername())) {
+            where.add("username = :username");
+            params.addValue("username", condition.getUsername());
+        }
+        if (hasText(condition.getTeamName())) {
+            List<Long> teamIds = teamDictionary.idsOf(condition.getTeamName());
+            if (teamIds.isEmpty()) {
+                return new Plan(List.of(), "", params, true);
+            }
+            where.add("team_id in (:teamIds)");
+            params.addValue("teamIds", teamIds);
+            targets = router.shardsForTeams(teamIds);
+        }
+        if (condition.getAgeGoe() != null) {
+            where.add("age >= :ageGoe");
+            params.addValue("ageGoe", condition.getAgeGoe());
+        }
+        if (condition.getAgeLoe() != null) {
+            where.add("age <= :ageLoe");
+            params.addValue("ageLoe", condition.getAgeLoe());
+        }
+        return new Plan(targets, where.toString(), params, hasText(condition.getTeamName()));
+    }
+
+    /**
+     * MemberSort 와 같은 순서의 order by. 팀 이름이 하나로 정해져 있으면 teamName 정렬은 순서를 바꾸지 않으므로 뺀다.
+     */
+    private String orderBy(Sort sort, boolean teamNameFixed) {
+        MemberSort.validate(sort);
+        StringJoiner orderBy = new StringJoiner(", ", " order by ", "");
+        for (Sort.Order order : sort) {
+            if (MemberSort.TEAM_NAME.equals(order.getProperty())) {
+                if (!teamNameFixed) {
+                    throw new InvalidSearchException("샤드 검색(study.shard.enabled)에서 teamName 정렬은 teamName 조건이 있을 때만 지원합니다.");
+                }
+                continue;
+            }
+            orderBy.add(COLUMNS.get(order.getProperty()) + (order.isAscending() ? " asc" : " desc"));
+        }
+        if (sort.getOrderFor(MemberSort.MEMBER_ID) == null) {
+            orderBy.add("member_id asc");
+        }
+        return orderBy.toString();
+    }
+
+    private <T> List<T> scatter(List<Shard> shards, Function<Shard, T> work) {
+        if (shards.size() == 1) {
+            return List.of(work.apply(shards.get(0)));
+        }
+        List<CompletableFuture<T>> futures = shards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> work.apply(shard), executor))
+                .collect(Collectors.toList());
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
+
+    private class Plan {
+        private final List<Shard> targets;
+        private final String where;
+        private final MapSqlParameterSource params;
+        private final boolean teamNameFixed;
+
+        private Plan(List<Shard> targets, String where, MapSqlParameterSource params, boolean teamNameFixed) {
+            this.targets = targets;
+            this.teamNameFixed = teamNameFixed;
+            this.where = where;
+            this.params = params;
+        }
+
+        //샤드마다 정렬된 앞쪽 limit 건. limit < 0 이면 전부.
+        List<MemberTeamDto> fetch(Sort sort, long limit) {
+            String sql = SELECT + where + orderBy(sort, teamNameFixed) + (limit >= 0 ? " limit " + limit : "");
+            List<MemberTeamDto> rows = new ArrayList<>();
+            for (List<MemberTeamDto> shardRows : scatter(targets, shard -> shard.getJdbcTemplate().query(sql, params, ROW_MAPPER))) {
+                rows.addAll(shardRows);
+            }
+            teamDictionary.fillTeamNames(rows);
+            return rows;
+        }
+
+        List<MemberTeamDto> page(Sort sort, long offset, int size) {
+            return TopN.page(fetch(sort, offset + size), MemberSort.comparator(sort), offset, size);
+        }
+
+        List<MemberTeamDto> after(Long lastMemberId, int limit) {
+            MapSqlParameterSource afterParams = new MapSqlParameterSource(params.getValues())
+                    .addValue("limit", limit);
+            String keyset = "";
+            if (lastMemberId != null) {
+                keyset = (where.isEmpty() ? " where " : " and ") + "member_id > :lastMemberId";
+                afterParams.addValue("lastMemberId", lastMemberId);
+            }
+            String sql = SELECT + where + keyset + " order by member_id asc limit :limit";
+            List<MemberTeamDto> rows = new ArrayList<>();
+            for (List<MemberTeamDto> shardRows : scatter(targets, shard -> shard.getJdbcTemplate().query(sql, afterParams, ROW_MAPPER))) {
+                rows.addAll(shardRows);
+            }
+            rows.sort(Comparator.comparing(MemberTeamDto::getMemberId));
+            if (rows.size() > limit) {
+                rows = new ArrayList<>(rows.subList(0, limit));
+            }
+            return teamDictionary.fillTeamNames(rows);
+        }
+
+        long count() {
+            String sql = "select count(*) from member" + where;
+            return scatter(targets, shard -> shard.getJdbcTemplate().queryForObject(sql, params, Long.class))
+                    .stream().mapToLong(Long::longValue).sum();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package study.querydsl.repository;
+
+import org.springframework.beans.factory.ObjectProvider;
+import study.querydsl.entity.Team;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import javax.persistence.PrePersist;
+
+/**
+ * 엔티티 단위 쓰기에서 테이블 버전을 올린다. 벌크 연산은 {@link study.querydsl.config.VersionedJPAQueryFactory} 가 올린다.
+ */
+public class TableVersionListener {
+
+    private final ObjectProvider<TableVersions> tableVersions;
+
+    public TableVersionListener(ObjectProvider<TableVersions> tableVersions) {
+        this.tableVersions = tableVersions;
+    }
+
+    //새 팀은 flush 전에도 TeamDictionary 가 다시 읽도록 persist 시점에 한번 올린다. 다시 읽는 쿼리가 team insert 를 flush 한다.
+    @PrePersist
+    public void beforePersist(Object entity) {
+        if (entity instanceof Team) {
+            tableVersions.ifAvailable(versions -> versions.bump(TableVersions.TEAM));
+        }
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void changed(Object entity) {
+        String table = entity instanceof Team ? TableVersions.TEAM : TableVersions.MEMBER;
+        tableVersions.ifAvailable(versions -> versions.bump(table));
+    }
+}
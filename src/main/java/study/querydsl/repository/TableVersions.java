@@ -0,0 +1,44 @@
+package study.querydsl.repository;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * member / team 테이블 쓰기마다 올라가는 버전. 검색 결과 ETag 에 쓴다.
+ * 커밋 전에 다른 요청이 예전 데이터를 새 버전으로 응답하지 않도록 커밋 이후에 한번 더 올린다.
+ * 재기동 후 예전 ETag 와 겹치지 않도록 기동 시각에서 시작한다.
+ * 이 JVM 에서 일어난 쓰기만 알 수 있다.
+ */
+@Component
+public class TableVersions {
+
+    public static final String MEMBER = "member";
+    public static final String TEAM = "team";
+
+    private final AtomicLong memberVersion = new AtomicLong(System.currentTimeMillis());
+    private final AtomicLong teamVersion = new AtomicLong(System.currentTimeMillis());
+
+    public void bump(String table) {
+        AtomicLong version = TEAM.equals(table) ? teamVersion : memberVersion;
+        version.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    version.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    public long getMemberVersion() {
+        return memberVersion.get();
+    }
+
+    public long getTeamVersion() {
+        return teamVersion.get();
+    }
+}
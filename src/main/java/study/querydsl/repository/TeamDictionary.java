@@ -0,0 +1,187 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * team 이름 <-> id 사전. team 테이블은 작으므로 통째로 메모리에 올려두고
+ * member 검색에서 team 조인 대신 member.team_id 조건 / 결과 채우기에 쓴다.
+ * team 쓰기로 {@link TableVersions} 의 team 버전이 바뀌면 다음 조회 때 다시 읽는다.
+ * 버전은 이 JVM 의 쓰기만 알 수 있으므로 (다른 노드, jdbc 직접 쓰기) ttl 이 지나도 다시 읽고,
+ * 사전에 없는 이름/id 를 만나면 없다고 판단하기 전에 한번 더 읽는다. 없는 이름이 계속 들어와도 테이블을 매번 읽지 않도록
+ * 이 재읽기는 miss-reload-interval 에 한번만 하고, 그 사이의 miss 는 지금 사전 기준으로 없다고 본다.
+ * 다시 읽기는 한 스레드만 하고 (나머지는 그 결과를 기다린다) DB 조회 중에는 모니터를 잡지 않는다.
+ * 팀 이름은 유일하지 않으므로 이름 하나에 여러 id 가 있을 수 있다.
+ */
+@Component
+public class TeamDictionary {
+
+    private final JPAQueryFactory queryFactory;
+    private final TableVersions tableVersions;
+
+    private final long ttlNanos;
+    private final long missReloadIntervalNanos;
+
+    private volatile Snapshot snapshot = new Snapshot(Long.MIN_VALUE, 0, Map.of(), Map.of());
+    private final AtomicReference<CompletableFuture<Snapshot>> loading = new AtomicReference<>();
+
+    public TeamDictionary(JPAQueryFactory queryFactory, TableVersions tableVersions,
+                          @Value("${study.team-dictionary.ttl-ms:5000}") long ttlMs,
+                          @Value("${study.team-dictionary.miss-reload-interval-ms:1000}") long missReloadIntervalMs) {
+        this.queryFactory = queryFactory;
+        this.tableVersions = tableVersions;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.missReloadIntervalNanos = TimeUnit.MILLISECONDS.toNanos(missReloadIntervalMs);
+    }
+
+    /**
+     * 팀 이름 조건을 member.team.id IN (...) 으로 바꾼다. 이 경로는 team 조인을 만들지 않는다.
+     * 없는 이름이면 빈 IN 이 되어 1 = 2 로 나간다.
+     */
+    public BooleanExpression teamNameEq(String teamName) {
+        return hasText(teamName) ? member.team.id.in(idsOf(teamName)) : null;
+    }
+
+    public List<Long> idsOf(String teamName) {
+        Snapshot current = current();
+        List<Long> ids = current.idsByName.get(teamName);
+        if (ids == null) {
+            ids = reloadOnMiss(current).idsByName.get(teamName);
+        }
+        return ids != null ? ids : List.of();
+    }
+
+    public String nameOf(Long teamId) {
+        if (teamId == null) {
+            return null;
+        }
+        Snapshot current = current();
+        if (!current.nameById.containsKey(teamId)) {
+            current = reloadOnMiss(current);
+        }
+        return current.nameById.get(teamId);
+    }
+
+    //member 만 조회한 결과에 teamName 을 채운다.
+    public <T extends Iterable<MemberTeamDto>> T fillTeamNames(T content) {
+        Snapshot current = current();
+        for (MemberTeamDto dto : content) {
+            if (dto.getTeamId() != null && !current.nameById.containsKey(dto.getTeamId())) {
+                current = reloadOnMiss(current);
+                break;
+            }
+        }
+        for (MemberTeamDto dto : content) {
+            if (dto.getTeamId() != null) {
+                dto.setTeamName(current.nameById.get(dto.getTeamId()));
+            }
+        }
+        return content;
+    }
+
+    public int size() {
+        return current().nameById.size();
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        return isFresh(current) ? current : reload(current);
+    }
+
+    private boolean isFresh(Snapshot current) {
+        return current.version == tableVersions.getTeamVersion() && System.nanoTime() - current.loadedAtNanos < ttlNanos;
+    }
+
+    //stale 을 본 뒤 다른 스레드가 이미 다시 읽었거나, 최근에 읽었으면 지금 사전을 그대로 쓴다.
+    private Snapshot reloadOnMiss(Snapshot stale) {
+        Snapshot current = snapshot;
+        if (current != stale || System.nanoTime() - current.loadedAtNanos < missReloadIntervalNanos) {
+            return current;
+        }
+        return reload(current);
+    }
+
+    //한 스레드만 읽고 동시에 들어온 스레드는 그 결과를 기다린다.
+    private Snapshot reload(Snapshot stale) {
+        CompletableFuture<Snapshot> mine = new CompletableFuture<>();
+        CompletableFuture<Snapshot> running = loading.compareAndExchange(null, mine);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        try {
+            Snapshot current = snapshot;
+            if (current != stale && isFresh(current)) {
+                mine.complete(current);
+                return current;
+            }
+            //읽기 전에 버전을 먼저 잡아야 읽는 도중의 쓰기를 놓치지 않는다.
+            Snapshot loaded = load(tableVersions.getTeamVersion());
+            synchronized (this) {
+                snapshot = loaded;
+            }
+            mine.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.set(null);
+        }
+    }
+
+    private Snapshot load(long version) {
+        long loadedAtNanos = System.nanoTime();
+        List<Tuple> rows = queryFactory.select(team.id, team.name)
+                .from(team)
+                .fetch();
+        Map<Long, String> nameById = new HashMap<>();
+        Map<String, List<Long>> idsByName = new HashMap<>();
+        for (Tuple row : rows) {
+            Long id = row.get(team.id);
+            String name = row.get(team.name);
+            nameById.put(id, name);
+            if (name != null) {
+                idsByName.computeIfAbsent(name, key -> new ArrayList<>()).add(id);
+            }
+        }
+        idsByName.replaceAll((name, ids) -> List.copyOf(ids));
+        return new Snapshot(version, loadedAtNanos, Collections.unmodifiableMap(nameById), Map.copyOf(idsByName));
+    }
+
+    private static final class Snapshot {
+        private final long version;
+        private final long loadedAtNanos;
+        private final Map<Long, String> nameById;
+        private final Map<String, List<Long>> idsByName;
+
+        private Snapshot(long version, long loadedAtNanos, Map<Long, String> nameById,
+                         Map<String, List<Long>> idsByName) {
+            this.version = version;
+            this.loadedAtNanos = loadedAtNanos;
+            this.nameById = nameById;
+            this.idsByName = idsByName;
+        }
+    }
+}
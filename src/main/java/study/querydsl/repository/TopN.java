@@ -0,0 +1,46 @@
+package study.querydsl.repository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 메모리에 있는 결과에서 한 페이지만 뽑는다.
+ * 전체를 정렬하지 않고 offset + limit 크기의 힙만 유지하므로 O(n log(offset + limit)) 이고 힙 크기만큼만 메모리를 쓴다.
+ */
+final class TopN {
+
+    private TopN() {
+    }
+
+    static <T> List<T> page(Iterable<? extends T> source, Comparator<? super T> comparator, long offset, int limit) {
+        long bound = offset + limit;
+        if (limit <= 0 || bound > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("offset + limit 범위가 잘못되었습니다: offset=" + offset + ", limit=" + limit);
+        }
+        int capacity = (int) bound;
+
+        //가장 큰 값이 머리에 오는 힙. 꽉 차면 머리보다 작은 값만 들어온다.
+        PriorityQueue<T> heap = new PriorityQueue<>(Math.min(capacity, 1024) + 1, comparator.reversed());
+        for (T value : source) {
+            if (heap.size() < capacity) {
+                heap.add(value);
+            } else if (comparator.compare(value, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(value);
+            }
+        }
+
+        List<T> sorted = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            sorted.add(heap.poll());
+        }
+        //힙에서 큰 값부터 나왔으므로 뒤집고 offset 을 건너뛴다.
+        List<T> page = new ArrayList<>(Math.max(0, sorted.size() - (int) offset));
+        for (int i = sorted.size() - 1 - (int) offset; i >= 0; i--) {
+            page.add(sorted.get(i));
+        }
+        return page;
+    }
+}
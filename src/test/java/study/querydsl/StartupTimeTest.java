@@ -0,0 +1,108 @@
+package study.querydsl;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.controller.initMember;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 기본 기동과 fast 프로파일 기동의 ready 까지 걸린 시간을 비교한다.
+ * 같은 JVM 에서 재면 뒤에 뜨는 쪽이 이미 로딩된 클래스와 JIT 덕을 보므로 매번 새 JVM 을 띄우고, 순서를 번갈아 가며 반복해서 중앙값을 비교한다.
+ */
+@Tag("benchmark")
+class StartupTimeTest {
+
+    private static final int ROUNDS = 5;
+    private static final String RESULT_PREFIX = "startup-ms=";
+
+    //테스트 classpath 의 application.yml 에는 fast 프로파일이 없으므로 같은 설정을 직접 넣는다.
+    private static final String[] FAST = {
+            "spring.main.lazy-initialization=true",
+            "spring.data.jpa.repositories.bootstrap-mode=lazy",
+            "study.startup.deferred-seeding=true"
+    };
+
+    @Test
+    public void startupTime() throws Exception {
+        List<Long> normal = new ArrayList<>();
+        List<Long> fast = new ArrayList<>();
+        for (int round = 0; round < ROUNDS; round++) {
+            if (round % 2 == 0) {
+                normal.add(launch());
+                fast.add(launch(FAST));
+            } else {
+                fast.add(launch(FAST));
+                normal.add(launch());
+            }
+        }
+
+        System.out.println("startup normal = " + normal + " median " + median(normal) + "ms");
+        System.out.println("startup fast   = " + fast + " median " + median(fast) + "ms");
+
+        assertThat(normal).allMatch(ms -> ms > 0);
+        assertThat(fast).allMatch(ms -> ms > 0);
+    }
+
+    private long launch(String... properties) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Launcher.class.getName());
+        Collections.addAll(command, properties);
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        Long elapsedMs = null;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(RESULT_PREFIX)) {
+                    elapsedMs = Long.parseLong(line.substring(RESULT_PREFIX.length()));
+                }
+            }
+        }
+        assertThat(process.waitFor(2, TimeUnit.MINUTES)).isTrue();
+        assertThat(process.exitValue()).isZero();
+        assertThat(elapsedMs).isNotNull();
+        return elapsedMs;
+    }
+
+    private static long median(List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+
+    //새 JVM 에서 한번 기동하고 걸린 시간을 출력한 뒤 끝낸다.
+    static class Launcher {
+
+        public static void main(String[] properties) throws Exception {
+            long start = System.nanoTime();
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(QuerydslApplication.class)
+                    .profiles("local")
+                    .properties("server.port=0")
+                    .properties(properties)
+                    .run();
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            //백그라운드 적재가 끝난 뒤 닫아야 종료 중에 insert 가 실패하지 않는다.
+            context.getBean(initMember.class).seeded().get(30, TimeUnit.SECONDS);
+            context.close();
+            System.out.println(RESULT_PREFIX + elapsedMs);
+            System.exit(0);
+        }
+    }
+}
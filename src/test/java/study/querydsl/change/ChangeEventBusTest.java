@@ -0,0 +1,121 @@
+package study.querydsl.change;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+@SpringBootTest
+class ChangeEventBusTest {
+
+    @Autowired
+    ChangeEventBus changeEventBus;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+    List<String> events = new CopyOnWriteArrayList<>();
+    Consumer<ChangeBatch> subscriber = batch -> {
+        for (int i = 0; i < batch.size(); i++) {
+            events.add(batch.table(i) + " " + batch.op(i) + " " + batch.id(i) + " " + batch.columnNames(i));
+        }
+    };
+
+    @BeforeEach
+    void before() {
+        tx = new TransactionTemplate(transactionManager);
+        changeEventBus.subscribe(subscriber);
+    }
+
+    @AfterEach
+    void after() {
+        changeEventBus.unsubscribe(subscriber);
+        tx.executeWithoutResult(status -> em.createQuery("delete from Member").executeUpdate());
+    }
+
+    @Test
+    public void entityChangesAfterCommit() throws Exception {
+        Long id = tx.execute(status -> {
+            Member saved = new Member("member1", 10);
+            em.persist(saved);
+            return saved.getId();
+        });
+        tx.executeWithoutResult(status -> em.find(Member.class, id).setAge(20));
+
+        awaitEvents(2);
+        assertThat(events).containsExactly(
+                "MEMBER INSERT " + id + " [age, team, username]",
+                "MEMBER UPDATE " + id + " [age]");
+    }
+
+    @Test
+    public void rolledBackChangesAreNotPublished() throws Exception {
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("member1", 10));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        Thread.sleep(200);
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    public void bulkUpdateCarriesSetColumns() throws Exception {
+        tx.executeWithoutResult(status -> queryFactory.update(member)
+                .set(member.age, member.age.add(1))
+                .set(member.username, "bulk")
+                .execute());
+
+        awaitEvents(1);
+        assertThat(events).containsExactly("MEMBER UPDATE " + ChangeEventBus.ALL_ROWS + " [age, username]");
+    }
+
+    //오래 쉬어서 park 가 길어진 전달 스레드도 publish 가 바로 깨운다.
+    @Test
+    public void idleDispatcherWakesOnPublish() throws Exception {
+        ChangeEventBus bus = new ChangeEventBus(64, 16, 1000, 60_000);
+        CountDownLatch delivered = new CountDownLatch(1);
+        bus.subscribe(batch -> delivered.countDown());
+        try {
+            //1ms 부터 두배씩 늘어 1.5초 시점에는 1초 넘게 park 중이다.
+            Thread.sleep(1500);
+            long start = System.nanoTime();
+            bus.publish(ChangeTable.MEMBER, ChangeOp.INSERT, 1L, ChangeEventBus.ALL_COLUMNS);
+
+            assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(300);
+        } finally {
+            bus.shutdown();
+        }
+    }
+
+    private void awaitEvents(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (events.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
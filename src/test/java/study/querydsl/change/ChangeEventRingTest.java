@@ -0,0 +1,97 @@
+package study.querydsl.change;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChangeEventRingTest {
+
+    @Test
+    public void concurrentProducersSingleConsumer() throws Exception {
+        ChangeEventRing ring = new ChangeEventRing(1024);
+        ChangeBatch batch = new ChangeBatch(64, new ChangeColumns());
+        int producers = 4;
+        int perProducer = 50_000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch done = new CountDownLatch(producers);
+
+        for (int p = 0; p < producers; p++) {
+            long base = (long) p * perProducer;
+            executor.execute(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    //가득 차면 소비자가 비울 때까지 다시 시도
+                    while (!ring.offer(ChangeTable.MEMBER, ChangeOp.UPDATE, base + i, 1L)) {
+                        Thread.onSpinWait();
+                    }
+                }
+                done.countDown();
+            });
+        }
+
+        Set<Long> received = new HashSet<>();
+        while (received.size() < producers * perProducer) {
+            ring.drainTo(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                assertThat(batch.table(i)).isEqualTo(ChangeTable.MEMBER);
+                received.add(batch.id(i));
+            }
+        }
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+
+        assertThat(received).hasSize(producers * perProducer);
+    }
+
+    @Test
+    public void dropsWhenFull() {
+        ChangeEventRing ring = new ChangeEventRing(4);
+        ChangeBatch batch = new ChangeBatch(16, new ChangeColumns());
+        for (long id = 1; id <= 6; id++) {
+            ring.offer(ChangeTable.TEAM, ChangeOp.INSERT, id, ChangeEventBus.ALL_COLUMNS);
+        }
+
+        assertThat(ring.drainTo(batch)).isEqualTo(4);
+        assertThat(batch.id(0)).isEqualTo(1L);
+        assertThat(batch.id(3)).isEqualTo(4L);
+        assertThat(ring.takeDropped()).isEqualTo(2);
+
+        //비운 뒤에는 다시 들어간다.
+        assertThat(ring.offer(ChangeTable.TEAM, ChangeOp.DELETE, 7, ChangeEventBus.ALL_COLUMNS)).isTrue();
+        assertThat(ring.drainTo(batch)).isEqualTo(1);
+        assertThat(batch.op(0)).isEqualTo(ChangeOp.DELETE);
+    }
+
+    @Test
+    public void offerDoesNotAllocate() {
+        ChangeEventRing ring = new ChangeEventRing(1 << 16);
+        ChangeBatch batch = new ChangeBatch(1 << 16, new ChangeColumns());
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        //JIT 컴파일 이후 측정
+        for (int round = 0; round < 20; round++) {
+            publishAll(ring, 50_000);
+            ring.drainTo(batch);
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        publishAll(ring, 50_000);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertThat(allocated).isLessThan(1024);
+    }
+
+    private static void publishAll(ChangeEventRing ring, int count) {
+        for (int i = 0; i < count; i++) {
+            ring.offer(ChangeTable.MEMBER, ChangeOp.UPDATE, i, 2L);
+        }
+    }
+}
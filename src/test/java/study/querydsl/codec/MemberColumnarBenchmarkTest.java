@@ -0,0 +1,58 @@
+package study.querydsl.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * json 과 컬럼 포맷의 응답 크기, 직렬화 속도 비교.
+ */
+@Tag("benchmark")
+class MemberColumnarBenchmarkTest {
+
+    static final int ROWS = 10_000;
+    static final int ITERATIONS = 200;
+
+    @Test
+    public void compareWithJson() throws Exception {
+        List<MemberTeamDto> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new MemberTeamDto((long) i + 1, "member" + i, i % 100, (long) i % 2 + 1, i % 2 == 0 ? "teamA" : "teamB"));
+        }
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        byte[] json = objectMapper.writeValueAsBytes(rows);
+        byte[] columnar = encode(rows);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            objectMapper.writeValueAsBytes(rows);
+        }
+        long jsonMs = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            encode(rows);
+        }
+        long columnarMs = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println("json     : " + json.length + " bytes, " + jsonMs + "ms / " + ITERATIONS);
+        System.out.println("columnar : " + columnar.length + " bytes, " + columnarMs + "ms / " + ITERATIONS);
+    }
+
+    private static byte[] encode(List<MemberTeamDto> rows) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MemberColumnarWriter writer = new MemberColumnarWriter(out);
+        writer.writeHeader(false, 0, 0, null, false);
+        for (int from = 0; from < rows.size(); from += MemberColumnarFormat.BLOCK_SIZE) {
+            writer.writeBlock(rows.subList(from, Math.min(from + MemberColumnarFormat.BLOCK_SIZE, rows.size())));
+        }
+        writer.finish();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,50 @@
+package study.querydsl.codec;
+
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MemberColumnarCodecTest {
+
+    @Test
+    public void roundTrip() throws Exception {
+        List<MemberTeamDto> rows = new ArrayList<>();
+        for (int i = 0; i < 1_200; i++) {
+            boolean noTeam = i % 7 == 0;
+            rows.add(new MemberTeamDto((long) i * 3, i % 11 == 0 ? null : "member" + i, i % 100,
+                    noTeam ? null : (long) i % 3, noTeam ? null : "team" + i % 3));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MemberColumnarWriter writer = new MemberColumnarWriter(out);
+        writer.writeHeader(true, 2, 1_200, 5_000L, true);
+        writer.writeBlock(rows.subList(0, 512));
+        writer.writeBlock(rows.subList(512, rows.size()));
+        writer.finish();
+
+        MemberColumnarReader reader = new MemberColumnarReader(new ByteArrayInputStream(out.toByteArray()));
+        assertThat(reader.isPaged()).isTrue();
+        assertThat(reader.getPageNumber()).isEqualTo(2);
+        assertThat(reader.getTotal()).isEqualTo(5_000L);
+        assertThat(reader.isHasNext()).isTrue();
+        assertThat(reader.readAll()).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(rows);
+    }
+
+    @Test
+    public void nullMemberIdRejected() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MemberColumnarWriter writer = new MemberColumnarWriter(out);
+        List<MemberTeamDto> rows = List.of(new MemberTeamDto(1L, "member1", 10, null, null),
+                new MemberTeamDto(null, "member2", 20, null, null));
+
+        assertThatThrownBy(() -> writer.writeBlock(rows)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(out.size()).isZero();
+    }
+}
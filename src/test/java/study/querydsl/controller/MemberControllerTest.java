@@ -0,0 +1,82 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import study.querydsl.codec.MemberColumnarHttpMessageConverter;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberRepository;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @AfterEach
+    void after() {
+        memberRepository.deleteAll();
+    }
+
+    @Test
+    public void notModifiedUntilMemberWrite() throws Exception {
+        memberRepository.save(new Member("member1", 10));
+
+        String eTag = mockMvc.perform(get("/v3/members").param("size", "10"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/v3/members").param("size", "10").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        memberRepository.save(new Member("member2", 20));
+
+        mockMvc.perform(get("/v3/members").param("size", "10").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+    }
+
+    //같은 url 의 json / 컬럼 포맷은 ETag 가 달라야 캐시가 다른 표현을 재사용하지 않는다.
+    @Test
+    public void eTagDependsOnRepresentation() throws Exception {
+        memberRepository.save(new Member("member1", 10));
+
+        String jsonETag = mockMvc.perform(get("/v3/members").param("size", "10").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/v3/members").param("size", "10")
+                        .accept(MemberColumnarHttpMessageConverter.MEDIA_TYPE)
+                        .header(HttpHeaders.IF_NONE_MATCH, jsonETag))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MemberColumnarHttpMessageConverter.MEDIA_TYPE))
+                .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT)));
+
+        mockMvc.perform(get("/v3/members").param("size", "10").accept(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_NONE_MATCH, jsonETag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void unknownSortPropertyIsBadRequest() throws Exception {
+        mockMvc.perform(get("/v3/members").param("sort", "password"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").exists());
+    }
+}
@@ -0,0 +1,104 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberStreamingSearch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class NdjsonEmitterSubscriberTest {
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    MemberStreamingSearch streamingSearch;
+    NdjsonWriterPool writerPool;
+    CountDownLatch unblock = new CountDownLatch(1);
+
+    @BeforeEach
+    void before() {
+        List<Member> members = new ArrayList<>();
+        for (int i = 1; i <= 30; i++) {
+            members.add(new Member("member" + i, i));
+        }
+        memberRepository.saveAll(members);
+        //DB 조회 스레드 1개, chunk 4 건
+        streamingSearch = new MemberStreamingSearch(memberRepository, 4, 1, 8);
+        writerPool = new NdjsonWriterPool(4);
+    }
+
+    @AfterEach
+    void after() {
+        unblock.countDown();
+        streamingSearch.shutdown();
+        writerPool.shutdown();
+        memberRepository.deleteAll();
+    }
+
+    //소켓 버퍼가 가득 찬 클라이언트처럼 쓰기가 돌아오지 않는 스트림이 있어도 다른 스트림은 끝까지 나간다.
+    @Test
+    public void stuckClientDoesNotStallOtherStreams() throws Exception {
+        BlockingEmitter stuck = new BlockingEmitter(unblock);
+        streamingSearch.search(new MemberSearchCondition()).subscribe(new NdjsonEmitterSubscriber<>(stuck, 2, writerPool));
+        assertThat(stuck.sending.await(5, TimeUnit.SECONDS)).isTrue();
+
+        RecordingEmitter other = new RecordingEmitter();
+        streamingSearch.search(new MemberSearchCondition()).subscribe(new NdjsonEmitterSubscriber<>(other, 2, writerPool));
+
+        assertThat(other.completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(other.items).hasSize(30);
+        assertThat(other.items).extracting("age").isSorted();
+    }
+
+    static class BlockingEmitter extends ResponseBodyEmitter {
+        final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch unblock;
+
+        BlockingEmitter(CountDownLatch unblock) {
+            this.unblock = unblock;
+        }
+
+        @Override
+        public void send(Object object, MediaType mediaType) {
+            sending.countDown();
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    static class RecordingEmitter extends ResponseBodyEmitter {
+        final List<MemberTeamDto> items = new CopyOnWriteArrayList<>();
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        @Override
+        public void send(Object object, MediaType mediaType) {
+            if (object instanceof MemberTeamDto) {
+                items.add((MemberTeamDto) object);
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+    }
+}
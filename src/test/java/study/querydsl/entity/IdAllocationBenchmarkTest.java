@@ -0,0 +1,57 @@
+package study.querydsl.entity;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 시퀀스 allocation size 1(기존 @GeneratedValue 처럼 row 마다 시퀀스 조회)과 pooled(50)의 insert 처리량 비교.
+ */
+@Tag("benchmark")
+abstract class IdAllocationBenchmarkTest {
+
+    static final int COUNT = 10_000;
+    static final int BATCH_SIZE = 100;
+
+    @Autowired
+    EntityManager em;
+
+    @Test
+    @Transactional
+    public void insertThroughput() {
+        Team team = new Team("teamA");
+        em.persist(team);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            em.persist(new Member("member" + i, i % 100, team));
+            if (i % BATCH_SIZE == 0) {
+                em.flush();
+                em.clear();
+                team = em.getReference(Team.class, team.getId());
+            }
+        }
+        em.flush();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println(getClass().getSimpleName() + " insert " + COUNT + " rows = " + elapsedMs + "ms, "
+                + (COUNT * 1000L / Math.max(elapsedMs, 1)) + " rows/s");
+
+        Long count = em.createQuery("select count(m) from Member m", Long.class).getSingleResult();
+        assertThat(count).isEqualTo(COUNT);
+    }
+
+    @SpringBootTest(properties = "spring.jpa.properties.study.id.increment_size.member_seq=1")
+    static class PerRowSequenceTest extends IdAllocationBenchmarkTest {
+    }
+
+    @SpringBootTest(properties = "spring.jpa.properties.study.id.increment_size.member_seq=50")
+    static class PooledSequenceTest extends IdAllocationBenchmarkTest {
+    }
+}
@@ -0,0 +1,32 @@
+package study.querydsl.fixture;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * 대량 데이터 적재용 픽스처. H2 의 system_range 로 insert ... select 한번에 넣어서 100만건도 빠르게 만든다.
+ * id 는 hibernate 와 같은 시퀀스에서 받으므로 이후 persist 와 겹치지 않는다.
+ *
+ * team : team0 ~ team{teams-1}
+ * member : member1 ~ member{members}, age = 번호 % 100, team = 번호 % teams
+ */
+public final class MemberFixture {
+
+    private MemberFixture() {
+    }
+
+    public static void seed(JdbcTemplate jdbcTemplate, int members, int teams) {
+        jdbcTemplate.update("insert into team (id, name) " +
+                "select next value for team_seq, 'team' || (x - 1) from system_range(1, ?)", teams);
+
+        jdbcTemplate.update("insert into member (member_id, username, age, team_id) " +
+                "select next value for member_seq, 'member' || r.x, mod(r.x, 100), t.id " +
+                "from system_range(1, ?) r join team t on t.name = 'team' || mod(r.x, ?)", members, teams);
+
+        jdbcTemplate.execute("analyze");
+    }
+
+    public static void clear(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("truncate table member");
+        jdbcTemplate.execute("delete from team");
+    }
+}
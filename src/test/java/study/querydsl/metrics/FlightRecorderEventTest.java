@@ -0,0 +1,111 @@
+package study.querydsl.metrics;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class FlightRecorderEventTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @AfterEach
+    void after() {
+        memberRepository.deleteAll();
+    }
+
+    @Test
+    public void recordsQueryAndRequestPhases() throws Exception {
+        memberRepository.save(new Member("member1", 10));
+        memberRepository.save(new Member("member2", 20));
+
+        Path file = Files.createTempFile("study", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("study.RepositoryQuery").withoutThreshold();
+            recording.enable("study.RequestPhase").withoutThreshold();
+            recording.start();
+
+            mockMvc.perform(get("/v1/members").param("ageGoe", "15"))
+                    .andExpect(status().isOk());
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.deleteIfExists(file);
+
+        List<RecordedEvent> queries = events.stream()
+                .filter(e -> e.getEventType().getName().equals("study.RepositoryQuery"))
+                .collect(Collectors.toList());
+        assertThat(queries).anySatisfy(e -> {
+            assertThat(e.getString("method")).isEqualTo("MemberJpaRepository.search");
+            assertThat(e.getString("predicate")).isEqualTo("ageGoe");
+            assertThat(e.getLong("rows")).isEqualTo(1);
+        });
+
+        List<String> phases = events.stream()
+                .filter(e -> e.getEventType().getName().equals("study.RequestPhase"))
+                .filter(e -> e.getString("endpoint").equals("GET /v1/members"))
+                .map(e -> e.getString("phase"))
+                .collect(Collectors.toList());
+        assertThat(phases).containsExactlyInAnyOrder("bind", "query", "serialize");
+    }
+
+    @Test
+    public void predicateShapeFollowsRepositoryRules() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(" ");
+        condition.setTeamName("");
+        condition.setAgeLoe(30);
+        assertThat(QueryFlightRecorder.predicateShape(new String[]{"condition"}, new Object[]{condition}))
+                .isEqualTo("ageLoe");
+
+        assertThat(QueryFlightRecorder.predicateShape(new String[]{"username"}, new Object[]{"member1"}))
+                .isEqualTo("username");
+        assertThat(QueryFlightRecorder.predicateShape(
+                new String[]{"condition", "lastMemberId", "limit"}, new Object[]{condition, null, 10}))
+                .isEqualTo("ageLoe");
+        assertThat(QueryFlightRecorder.predicateShape(new String[]{"ids"}, new Object[]{List.of(1L, 2L)}))
+                .isEqualTo("ids[2]");
+    }
+
+    @Test
+    public void disabledByDefault() throws Exception {
+        Path file = Files.createTempFile("study", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.start();
+            mockMvc.perform(get("/v1/members")).andExpect(status().isOk());
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.deleteIfExists(file);
+
+        assertThat(events).noneMatch(e -> e.getEventType().getName().startsWith("study."));
+    }
+}
@@ -0,0 +1,69 @@
+package study.querydsl.metrics;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 작은 풀(2)에서 시작해 /v3/members 에 동시 요청을 보내고 adaptive sizer 가 풀을 키우는지,
+ * 대기시간 분포가 어떻게 되는지 출력한다.
+ */
+@Tag("benchmark")
+@DirtiesContext
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "study.pool.adaptive.enabled=true",
+        "study.pool.adaptive.min-size=2",
+        "study.pool.adaptive.max-size=16",
+        "study.pool.adaptive.interval-ms=500"
+})
+class PoolLoadTest {
+
+    static final int THREADS = 32;
+    static final int REQUESTS_PER_THREAD = 200;
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Autowired
+    PoolMetrics poolMetrics;
+
+    @Test
+    public void concurrentSearch() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+                    restTemplate.getForObject("/v3/members?page=" + (i % 5) + "&size=20", String.class);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        Map<String, Object> snapshot = poolMetrics.snapshot();
+        System.out.println("requests = " + THREADS * REQUESTS_PER_THREAD + ", elapsed = " + elapsedMs + "ms");
+        System.out.println("pool = " + snapshot);
+
+        assertThat((Integer) snapshot.get("maximumPoolSize")).isGreaterThan(2);
+    }
+}
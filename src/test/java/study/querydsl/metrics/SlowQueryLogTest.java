@@ -0,0 +1,48 @@
+package study.querydsl.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberJpaRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "study.slow-query.threshold-ms=0")
+@Transactional
+class SlowQueryLogTest {
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    SlowQueryLog slowQueryLog;
+
+    @Test
+    public void captureWithRepositoryMethodAndPlan() throws Exception {
+        memberJpaRepository.save(new Member("member1", 10));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member1");
+        memberJpaRepository.search(condition);
+
+        List<SlowQueryLog.SlowQuery> recent = slowQueryLog.recent();
+        SlowQueryLog.SlowQuery search = recent.stream()
+                .filter(q -> "MemberJpaRepository.search".equals(q.getRepositoryMethod()))
+                .findFirst()
+                .orElseThrow();
+
+        assertThat(search.getJpql()).contains("select");
+        assertThat(search.getSqlWithValues()).contains("'member1'");
+        assertThat(search.getRows()).isEqualTo(1);
+
+        for (int i = 0; i < 50 && search.getPlan() == null; i++) {
+            Thread.sleep(100);
+        }
+        assertThat(search.getPlan()).isNotBlank();
+    }
+}
@@ -0,0 +1,30 @@
+package study.querydsl.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatementStatsTest {
+
+    @Test
+    public void normalizeCollapsesLiteralsAndInLists() {
+        String a = StatementStats.normalize("/* select m from Member m */ select m.member_id from member m " +
+                "where m.age >= 10 and m.username = 'member1' and m.member_id in (?, ?, ?)");
+        String b = StatementStats.normalize("select m.member_id from member m\n" +
+                "where m.age >= 20 and m.username = 'it''s' and m.member_id in (?)");
+
+        assertThat(a).isEqualTo("select m.member_id from member m where m.age >= ? and m.username = ? and m.member_id in (...)");
+        assertThat(b).isEqualTo(a);
+    }
+
+    @Test
+    public void topByTotalTime() {
+        StatementStats stats = new StatementStats();
+        stats.record("select * from member where age = 1", 3_000_000, 1, "a");
+        stats.record("select * from member where age = 2", 3_000_000, 1, "a");
+        stats.record("select * from team", 1_000_000, 2, "b");
+
+        assertThat(stats.top(1, "total")).extracting("fingerprint").containsExactly("select * from member where age = ?");
+        assertThat(stats.top(2, "total").get(0).getCalls()).isEqualTo(2);
+    }
+}
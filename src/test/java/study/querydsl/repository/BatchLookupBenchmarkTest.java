@@ -0,0 +1,60 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * findById 반복 호출과 findAllByIds(IN 절 조각 조회)의 비교.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Transactional
+class BatchLookupBenchmarkTest {
+
+    static final int COUNT = 5_000;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Test
+    public void loopVsBatch() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < COUNT; i++) {
+            Member member = new Member("member" + i, i % 100);
+            em.persist(member);
+            ids.add(member.getId());
+        }
+        em.flush();
+        em.clear();
+
+        long start = System.nanoTime();
+        List<Member> looped = new ArrayList<>();
+        for (Long id : ids) {
+            memberRepository.findById(id).ifPresent(looped::add);
+        }
+        long loopMs = (System.nanoTime() - start) / 1_000_000;
+        em.clear();
+
+        start = System.nanoTime();
+        List<Member> batched = memberRepository.findAllByIds(ids);
+        long batchMs = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println("findById loop = " + loopMs + "ms, findAllByIds = " + batchMs + "ms (" + COUNT + " ids)");
+
+        assertThat(batched).extracting("id").containsExactlyElementsOf(ids);
+        assertThat(looped).hasSameSizeAs(batched);
+    }
+}
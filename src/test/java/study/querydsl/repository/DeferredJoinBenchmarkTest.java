@@ -0,0 +1,73 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.fixture.MemberFixture;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * offset 별 일반 offset 조회와 deferred join 조회 비교.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class DeferredJoinBenchmarkTest {
+
+    static final int MEMBERS = 200_000;
+    static final int PAGE_SIZE = 20;
+    static final int[] OFFSETS = {0, 1_000, 10_000, 50_000, 100_000, 190_000};
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    MemberRepositoryImpl memberRepositoryImpl;
+
+    @BeforeEach
+    void before() {
+        MemberFixture.seed(jdbcTemplate, MEMBERS, 10);
+    }
+
+    @AfterEach
+    void after() {
+        MemberFixture.clear(jdbcTemplate);
+    }
+
+    @Test
+    public void offsetVsDeferredJoin() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+
+        for (int offset : OFFSETS) {
+            PageRequest pageRequest = PageRequest.of(offset / PAGE_SIZE, PAGE_SIZE);
+            //warm up
+            memberRepositoryImpl.fetchContentOffset(condition, pageRequest);
+            memberRepositoryImpl.fetchContentDeferredJoin(condition, pageRequest);
+
+            long offsetMs = time(() -> memberRepositoryImpl.fetchContentOffset(condition, pageRequest));
+            long deferredMs = time(() -> memberRepositoryImpl.fetchContentDeferredJoin(condition, pageRequest));
+            System.out.println("offset " + offset + " : offset = " + offsetMs + "ms, deferred join = " + deferredMs + "ms");
+
+            assertThat(memberRepositoryImpl.fetchContentDeferredJoin(condition, pageRequest)).hasSize(PAGE_SIZE);
+        }
+    }
+
+    private static long time(Supplier<List<MemberTeamDto>> query) {
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            query.get();
+        }
+        return (System.nanoTime() - start) / 1_000_000 / 10;
+    }
+}
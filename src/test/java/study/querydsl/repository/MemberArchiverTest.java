@@ -0,0 +1,145 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.MemberArchive;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "study.archive.enabled=true",
+        "study.archive.batch-size=1",
+        "study.archive.interval-ms=600000"
+})
+@Transactional
+class MemberArchiverTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberArchiver memberArchiver;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @BeforeEach
+    void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        Member member3 = new Member("member3", 30, teamB);
+        member3.setLastActiveAt(LocalDateTime.now().minusDays(400));
+        em.persist(member3);
+        Member member4 = new Member("member4", 40, teamA);
+        member4.setLastActiveAt(LocalDateTime.now().minusDays(200));
+        em.persist(member4);
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void archiveColdMembersInBatches() {
+        long moved = memberArchiver.archive(LocalDateTime.now().minusDays(180));
+        em.clear();
+
+        assertThat(moved).isEqualTo(2);
+        assertThat(memberRepository.findAll()).extracting("username").containsExactlyInAnyOrder("member1", "member2");
+        List<MemberArchive> archived = em.createQuery("select a from MemberArchive a order by a.id", MemberArchive.class)
+                .getResultList();
+        assertThat(archived).extracting("username").containsExactly("member3", "member4");
+        assertThat(archived).allSatisfy(a -> {
+            assertThat(a.getArchivedAt()).isNotNull();
+            assertThat(a.getCreatedAt()).isNotNull();
+        });
+
+        //다시 실행해도 옮길 회원이 없다.
+        assertThat(memberArchiver.archive(LocalDateTime.now().minusDays(180))).isZero();
+    }
+
+    @Test
+    public void updatedMemberStaysHot() {
+        //findByUsername 은 readOnly 힌트라 변경이 flush 되지 않으므로 em 으로 읽는다.
+        Member member4 = em.createQuery("select m from Member m where m.username = 'member4'", Member.class)
+                .getSingleResult();
+        member4.setAge(41);
+        em.flush();
+        em.clear();
+
+        assertThat(memberArchiver.archive(LocalDateTime.now().minusDays(180))).isEqualTo(1);
+        assertThat(memberRepository.findByUsername("member4")).hasSize(1);
+        assertThat(memberRepository.findByUsername("member3")).isEmpty();
+    }
+
+    @Test
+    public void jpaRepositoryRejectsIncludeArchived() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setIncludeArchived(true);
+
+        assertThatThrownBy(() -> memberJpaRepository.search(condition)).isInstanceOf(InvalidSearchException.class);
+    }
+
+    @Test
+    public void searchHotOnlyUnlessIncludeArchived() {
+        memberArchiver.archive(LocalDateTime.now().minusDays(180));
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        assertThat(memberRepository.search(condition)).extracting("username")
+                .containsExactlyInAnyOrder("member1", "member2");
+
+        condition.setIncludeArchived(true);
+        assertThat(memberRepository.search(condition)).extracting("username")
+                .containsExactlyInAnyOrder("member1", "member2", "member3", "member4");
+
+        Page<MemberTeamDto> page = memberRepository.searchPageSimple(condition,
+                PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "age")));
+        assertThat(page.getContent()).extracting("username").containsExactly("member4", "member3", "member2");
+        assertThat(page.getTotalElements()).isEqualTo(4);
+
+        Page<MemberTeamDto> byTeamName = memberRepository.searchPageComplex(condition,
+                PageRequest.of(0, 10, Sort.by("teamName", "age")));
+        assertThat(byTeamName.getContent()).extracting("username")
+                .containsExactly("member1", "member2", "member4", "member3");
+        assertThat(byTeamName.getContent().get(2).getTeamName()).isEqualTo("teamA");
+
+        condition.setTeamName("teamB");
+        assertThat(memberRepository.search(condition)).extracting("username").containsExactly("member3");
+    }
+
+    @Test
+    public void searchAfterIncludeArchived() {
+        memberArchiver.archive(LocalDateTime.now().minusDays(180));
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setIncludeArchived(true);
+        List<MemberTeamDto> first = memberRepository.searchAfter(condition, null, 3);
+        List<MemberTeamDto> second = memberRepository.searchAfter(condition, first.get(2).getMemberId(), 3);
+
+        assertThat(first).extracting("username").containsExactly("member1", "member2", "member3");
+        assertThat(second).extracting("username").containsExactly("member4");
+    }
+}
@@ -0,0 +1,83 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.querydsl.entity.Member;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * loader 는 별도 스레드에서 조회하므로 테스트 트랜잭션 없이 커밋된 데이터로 확인한다.
+ */
+@SpringBootTest(properties = {
+        "study.batch-loader.enabled=true",
+        "study.batch-loader.window-micros=20000"
+})
+class MemberBatchLoaderTest {
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberBatchLoader memberBatchLoader;
+
+    @AfterEach
+    void after() {
+        memberRepository.deleteAll();
+    }
+
+    //스레드 스케줄에 따라 window 가 나뉠 수 있으므로 batch 수를 딱 맞추지 않고 호출 수보다 적게 묶였는지만 본다.
+    @Test
+    public void loadConcurrentCallsInBatches() throws Exception {
+        int callers = 16;
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            members.add(new Member("member" + i, i));
+        }
+        memberRepository.saveAll(members);
+        long batchesBefore = (long) memberBatchLoader.stats().get("batches");
+        long loadedBefore = (long) memberBatchLoader.stats().get("loadedIds");
+
+        ExecutorService pool = Executors.newFixedThreadPool(callers + 1);
+        CountDownLatch ready = new CountDownLatch(callers + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Optional<Member>>> futures = new ArrayList<>();
+            for (int i = 0; i <= callers; i++) {
+                //마지막 호출은 없는 id
+                Long id = i < callers ? members.get(i).getId() : -1L;
+                futures.add(pool.submit(() -> {
+                    ready.countDown();
+                    start.await();
+                    return memberBatchLoader.load(id).get(5, TimeUnit.SECONDS);
+                }));
+            }
+            assertThat(ready.await(5, TimeUnit.SECONDS)).isTrue();
+            start.countDown();
+
+            for (int i = 0; i < callers; i++) {
+                assertThat(futures.get(i).get(5, TimeUnit.SECONDS)).get()
+                        .extracting("username").isEqualTo("member" + i);
+            }
+            assertThat(futures.get(callers).get(5, TimeUnit.SECONDS)).isEmpty();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long batches = (long) memberBatchLoader.stats().get("batches") - batchesBefore;
+        long loaded = (long) memberBatchLoader.stats().get("loadedIds") - loadedBefore;
+        assertThat(loaded).isEqualTo(callers + 1);
+        assertThat(batches).isPositive().isLessThan(callers + 1);
+    }
+}
@@ -44,6 +44,22 @@ class MemberJpaRepositoryTest {
         assertThat(result2).containsExactly(member);
     }
 
+    @Test
+    public void findAllByIdsInInputOrder() {
+        Member member1 = new Member("member1", 10);
+        Member member2 = new Member("member2", 20);
+        Member member3 = new Member("member3", 30);
+        memberJpaRepository.save(member1);
+        memberJpaRepository.save(member2);
+        memberJpaRepository.save(member3);
+
+        List<Member> result = memberJpaRepository.findAllByIds(List.of(member3.getId(), -1L, member1.getId()));
+        assertThat(result).containsExactly(member3, member1);
+
+        List<Member> result2 = memberJpaRepository.findByUsernames(List.of("member2", "none", "member1"));
+        assertThat(result2).containsExactly(member2, member1);
+    }
+
     @Test
     @DisplayName("querydsl 래포지토리 테스트")
     public void basicQuerydslTest() {
@@ -86,4 +102,21 @@ class MemberJpaRepositoryTest {
 
         assertThat(result).extracting("username").containsExactly("member4");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void searchMemberTest() {
+        for (int i = 1; i <= 4; i++) {
+            em.persist(new Member("member" + i, i * 10));
+        }
+        em.flush();
+        em.clear();
+
+        assertThat(memberJpaRepository.searchMember(new MemberSearchCondition())).hasSize(4);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(30);
+        assertThat(memberJpaRepository.searchMember(condition)).extracting("username")
+                .containsExactlyInAnyOrder("member2", "member3");
+    }
+}
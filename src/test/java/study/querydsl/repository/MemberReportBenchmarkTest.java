@@ -0,0 +1,121 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.dto.MemberAgeReportDto;
+import study.querydsl.entity.QMember;
+import study.querydsl.fixture.MemberFixture;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 팀별 나이 리포트 - 상관 서브쿼리(JPAExpressions) 와 집계 후 조인 비교.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class MemberReportBenchmarkTest {
+
+    static final int MEMBERS = 200_000;
+    static final int TEAMS = 100;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    MemberReportRepository memberReportRepository;
+
+    QMember memberSub = new QMember("memberSub");
+
+    @BeforeEach
+    void before() {
+        MemberFixture.seed(jdbcTemplate, MEMBERS, TEAMS);
+    }
+
+    @AfterEach
+    void after() {
+        MemberFixture.clear(jdbcTemplate);
+    }
+
+    @Test
+    public void teamMaxAge() {
+        Supplier<List<Long>> subQuery = () -> queryFactory.select(member.id)
+                .from(member)
+                .where(member.age.eq(JPAExpressions.select(memberSub.age.max())
+                        .from(memberSub)
+                        .where(memberSub.team.eq(member.team))))
+                .orderBy(member.id.asc())
+                .fetch();
+        Supplier<List<Long>> join = () -> ids(memberReportRepository.membersAtTeamMaxAge());
+
+        compare("team max age", subQuery, join);
+    }
+
+    @Test
+    public void aboveTeamAverage() {
+        Supplier<List<Long>> subQuery = () -> queryFactory.select(member.id)
+                .from(member)
+                .where(member.age.gt(JPAExpressions.select(memberSub.age.avg())
+                        .from(memberSub)
+                        .where(memberSub.team.eq(member.team))))
+                .orderBy(member.id.asc())
+                .fetch();
+        Supplier<List<Long>> join = () -> ids(memberReportRepository.membersAboveTeamAverage());
+
+        compare("above team average", subQuery, join);
+    }
+
+    @Test
+    public void withTeamMax() {
+        Supplier<List<Long>> subQuery = () -> {
+            List<Tuple> rows = queryFactory.select(member.id,
+                            ExpressionUtils.as(JPAExpressions.select(memberSub.age.max())
+                                    .from(memberSub)
+                                    .where(memberSub.team.eq(member.team)), "teamMaxAge"))
+                    .from(member)
+                    .orderBy(member.id.asc())
+                    .fetch();
+            return rows.stream().map(row -> row.get(member.id)).collect(Collectors.toList());
+        };
+        Supplier<List<Long>> join = () -> ids(memberReportRepository.membersWithTeamStats());
+
+        compare("with team max", subQuery, join);
+    }
+
+    private static void compare(String name, Supplier<List<Long>> subQuery, Supplier<List<Long>> join) {
+        //warm up + 결과 비교
+        assertThat(join.get()).containsExactlyElementsOf(subQuery.get());
+
+        long subQueryMs = time(subQuery);
+        long joinMs = time(join);
+        System.out.println(name + " : correlated subquery = " + subQueryMs + "ms, aggregate join = " + joinMs + "ms");
+    }
+
+    private static List<Long> ids(List<MemberAgeReportDto> report) {
+        return report.stream().map(MemberAgeReportDto::getMemberId).collect(Collectors.toList());
+    }
+
+    private static long time(Supplier<List<Long>> query) {
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            query.get();
+        }
+        return (System.nanoTime() - start) / 1_000_000 / 3;
+    }
+}
@@ -0,0 +1,77 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberAgeReportDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@Transactional
+class MemberReportRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberReportRepository memberReportRepository;
+
+    @BeforeEach
+    void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 40, teamB));
+        em.persist(new Member("member6", 50));
+        //리포트는 jdbc 로 읽는다.
+        em.flush();
+    }
+
+    @Test
+    public void membersAtTeamMaxAge() {
+        List<MemberAgeReportDto> result = memberReportRepository.membersAtTeamMaxAge();
+
+        assertThat(result).extracting("username", "teamName", "teamMaxAge")
+                .containsExactly(
+                        tuple("member2", "teamA", 20),
+                        tuple("member4", "teamB", 40),
+                        tuple("member5", "teamB", 40));
+    }
+
+    @Test
+    public void membersAboveTeamAverage() {
+        //teamA 평균 15, teamB 평균 36.67
+        List<MemberAgeReportDto> result = memberReportRepository.membersAboveTeamAverage();
+
+        assertThat(result).extracting("username").containsExactly("member2", "member4", "member5");
+    }
+
+    @Test
+    public void membersWithTeamStats() {
+        List<MemberAgeReportDto> result = memberReportRepository.membersWithTeamStats();
+
+        assertThat(result).extracting("username", "teamMaxAge")
+                .containsExactly(
+                        tuple("member1", 20),
+                        tuple("member2", 20),
+                        tuple("member3", 40),
+                        tuple("member4", 40),
+                        tuple("member5", 40),
+                        tuple("member6", null));
+        assertThat(result.get(0).getTeamAvgAge()).isEqualTo(15.0);
+    }
+}
@@ -0,0 +1,131 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.fixture.MemberFixture;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 데이터 규모별 검색/페이징/벌크 연산의 시간과 SQL 실행 횟수 상한 검증.
+ * ./gradlew performanceTest -Pperf.volumes=1000,100000,1000000
+ */
+@Tag("performance")
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class MemberRepositoryPerformanceTest {
+
+    static final int TEAMS = 10;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberCountCache memberCountCache;
+
+    @Autowired
+    TableVersions tableVersions;
+
+    @Autowired
+    TeamDictionary teamDictionary;
+
+    @Value("${study.search.deferred-join-offset:1000}")
+    long deferredJoinOffset;
+
+    static Stream<Integer> volumes() {
+        return Arrays.stream(System.getProperty("perf.volumes", "1000").split(","))
+                .map(String::trim)
+                .map(Integer::valueOf);
+    }
+
+    @ParameterizedTest(name = "{0} members")
+    @MethodSource("volumes")
+    public void searchPagingAndBulk(int volume) {
+        long seedStart = System.nanoTime();
+        MemberFixture.seed(jdbcTemplate, volume, TEAMS);
+        System.out.println("seed " + volume + " = " + (System.nanoTime() - seedStart) / 1_000_000 + "ms");
+        //fixture 는 jdbc 로 넣으므로 엔티티 리스너가 돌지 않는다.
+        memberCountCache.invalidate();
+        //team 을 새 id 로 다시 넣으므로 사전을 버리고, 첫 검색에 사전 로딩이 섞이지 않도록 미리 읽어둔다.
+        tableVersions.bump(TableVersions.TEAM);
+        teamDictionary.size();
+
+        try {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName("team3");
+            condition.setAgeGoe(10);
+            condition.setAgeLoe(19);
+
+            check("search", volume, 1, () -> memberJpaRepository.search(condition));
+            check("searchPageSimple first", volume, 2,
+                    () -> memberRepository.searchPageSimple(condition, PageRequest.of(0, 20)));
+            //offset 이 deferred-join-offset 보다 얕으면 content + count, 깊으면 id 쿼리가 하나 더 나간다.
+            check("searchPageComplex shallow", volume, 2,
+                    () -> memberRepository.searchPageComplex(new MemberSearchCondition(), PageRequest.of(1, 20)));
+            PageRequest deep = PageRequest.of(volume / 40, 20);
+            check("searchPageComplex deep", volume, deep.getOffset() >= deferredJoinOffset ? 3 : 2,
+                    () -> memberRepository.searchPageComplex(new MemberSearchCondition(), deep));
+            check("searchSlice", volume, 1,
+                    () -> memberRepository.searchSlice(condition, PageRequest.of(1, 20)));
+            check("bulkUpdate", volume, 1, () -> transactionTemplate.execute(status ->
+                    queryFactory.update(member)
+                            .set(member.age, member.age.add(1))
+                            .where(member.age.lt(10))
+                            .execute()));
+        } finally {
+            MemberFixture.clear(jdbcTemplate);
+            memberCountCache.invalidate();
+        }
+    }
+
+    private void check(String name, int volume, long maxStatements, Supplier<?> operation) {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        long start = System.nanoTime();
+        operation.get();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        long statements = statistics.getPrepareStatementCount();
+
+        System.out.println(name + " @" + volume + " = " + elapsedMs + "ms, " + statements + " statements");
+
+        assertThat(statements).as(name + " statements").isLessThanOrEqualTo(maxStatements);
+        assertThat(elapsedMs).as(name + " time").isLessThanOrEqualTo(timeBudgetMs(volume));
+    }
+
+    //규모에 비례하는 여유를 둔 상한. 1천건 = 52ms, 100만건 = 2초
+    private static long timeBudgetMs(int volume) {
+        return 50 + volume / 500;
+    }
+}
@@ -1,12 +1,19 @@
 package study.querydsl.repository;
 
+import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.CountedPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
@@ -14,8 +21,11 @@ import study.querydsl.entity.Team;
 
 import javax.persistence.EntityManager;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
 
 @SpringBootTest
 @Transactional
@@ -27,6 +37,12 @@ class MemberRepositoryTest {
     @Autowired
     MemberRepository memberRepository;
 
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
     @Test
     @DisplayName("jpql 레포지토리 테스트")
     public void basicTest() {
@@ -96,4 +112,182 @@ class MemberRepositoryTest {
                 .extracting("username")
                 .containsExactly("member1","member2","member3");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void findAllByIdsInInputOrder() {
+        Member member1 = new Member("member1", 10);
+        Member member2 = new Member("member2", 20);
+        Member member3 = new Member("member3", 30);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+
+        List<Member> result = memberRepository.findAllByIds(List.of(member3.getId(), -1L, member1.getId()));
+        assertThat(result).containsExactly(member3, member1);
+
+        List<Member> result2 = memberRepository.findByUsernames(List.of("member2", "none", "member1"));
+        assertThat(result2).containsExactly(member2, member1);
+    }
+
+    @Test
+    public void searchPageTotalInvalidatedOnWrite() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 1; i <= 4; i++) {
+            em.persist(new Member("member" + i, i * 10, teamA));
+        }
+        em.flush();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        PageRequest pageRequest = PageRequest.of(0, 2);
+
+        Page<MemberTeamDto> result = memberRepository.searchPageComplex(condition, pageRequest);
+        assertThat(result.getTotalElements()).isEqualTo(4);
+        assertThat(((CountedPage<MemberTeamDto>) result).isTotalExact()).isTrue();
+
+        em.persist(new Member("member5", 50, teamA));
+        em.flush();
+
+        Page<MemberTeamDto> result2 = memberRepository.searchPageComplex(condition, pageRequest);
+        assertThat(result2.getTotalElements()).isEqualTo(5);
+    }
+
+    @Test
+    public void searchSlice() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 1; i <= 4; i++) {
+            em.persist(new Member("member" + i, i * 10, teamA));
+        }
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        Slice<MemberTeamDto> first = memberRepository.searchSlice(condition, PageRequest.of(0, 3));
+        assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
+        assertThat(first.hasNext()).isTrue();
+
+        Slice<MemberTeamDto> last = memberRepository.searchSlice(condition, PageRequest.of(1, 3));
+        assertThat(last.getContent()).extracting("username").containsExactly("member4");
+        assertThat(last.hasNext()).isFalse();
+    }
+
+    @Test
+    public void searchByTeamNameFollowsTeamRename() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        assertThat(memberRepository.search(condition)).extracting("teamName").containsExactly("teamA");
+
+        teamA.setName("teamC");
+        em.flush();
+
+        assertThat(memberRepository.search(condition)).isEmpty();
+        condition.setTeamName("teamC");
+        assertThat(memberRepository.search(condition)).extracting("teamName").containsExactly("teamC");
+    }
+
+    @Test
+    public void searchByTeamNameSeesTeamWrittenByJdbc() throws InterruptedException {
+        //사전을 먼저 읽어둔다. 이후 jdbc 쓰기는 team 버전을 올리지 않는다.
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamJdbc");
+        assertThat(memberRepository.search(condition)).isEmpty();
+
+        jdbcTemplate.update("insert into team (id, name) values (next value for team_seq, 'teamJdbc')");
+        jdbcTemplate.update("insert into member (member_id, username, age, team_id) " +
+                "select next value for member_seq, 'member1', 10, id from team where name = 'teamJdbc'");
+
+        //miss 로 다시 읽는 건 miss-reload-interval 에 한번이므로 그 사이에는 아직 없다고 나올 수 있다.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (memberRepository.search(condition).isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(memberRepository.search(condition)).extracting("teamName").containsExactly("teamJdbc");
+    }
+
+    @Test
+    public void bulkDeleteInvalidatesCachedCount() {
+        for (int i = 1; i <= 5; i++) {
+            em.persist(new Member("member" + i, i * 10));
+        }
+        em.flush();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        assertThat(memberRepository.searchPageSimple(condition, PageRequest.of(0, 2)).getTotalElements()).isEqualTo(5);
+
+        queryFactory.delete(member).where(member.age.goe(40)).execute();
+
+        assertThat(memberRepository.searchPageSimple(condition, PageRequest.of(0, 2)).getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    public void searchPageSorted() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 20, teamB));
+        em.persist(new Member("member2", 10, teamA));
+        em.persist(new Member("member3", 20, teamA));
+        em.persist(new Member("member4", 30, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        Page<MemberTeamDto> byAge = memberRepository.searchPageComplex(condition,
+                PageRequest.of(0, 3, Sort.by(Sort.Order.desc("age"))));
+        //나이가 같으면 member id 순
+        assertThat(byAge.getContent()).extracting("username").containsExactly("member4", "member1", "member3");
+
+        Slice<MemberTeamDto> byTeam = memberRepository.searchSlice(condition,
+                PageRequest.of(0, 4, Sort.by("teamName", "username")));
+        assertThat(byTeam.getContent()).extracting("username").containsExactly("member2", "member3", "member1", "member4");
+    }
+
+    //deferred join 경로가 offset 경로와 같은 row 를 같은 순서로 돌려주는지. 기준 offset 을 낮춰 양쪽을 다 탄다.
+    @Nested
+    @TestPropertySource(properties = "study.search.deferred-join-offset=6")
+    class DeferredJoin {
+
+        @Autowired
+        EntityManager em;
+
+        @Autowired
+        MemberRepository memberRepository;
+
+        @Test
+        public void pagesMatchOffsetPath() {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            //나이/이름/팀이 겹치는 row 가 많아야 정렬 동률 처리까지 비교된다.
+            for (int i = 0; i < 24; i++) {
+                Team team = i % 5 == 0 ? null : (i % 2 == 0 ? teamA : teamB);
+                em.persist(new Member("member" + (i % 4), 10 + (i % 3) * 10, team));
+            }
+            em.flush();
+            em.clear();
+
+            MemberSearchCondition condition = new MemberSearchCondition();
+            for (Sort sort : List.of(Sort.unsorted(), Sort.by(Sort.Order.desc("age")), Sort.by("username"),
+                    Sort.by(Sort.Order.desc("username"), Sort.Order.asc("age")), Sort.by("teamName", "age"),
+                    Sort.by(Sort.Order.desc("teamName")))) {
+                //offset 0 이므로 offset 경로
+                List<Long> expected = memberRepository.searchPageComplex(condition, PageRequest.of(0, 24, sort))
+                        .getContent().stream().map(MemberTeamDto::getMemberId).collect(Collectors.toList());
+                assertThat(expected).hasSize(24);
+
+                //offset 0, 4 는 offset 경로, 8 부터는 deferred join
+                for (int page = 0; page < 6; page++) {
+                    Page<MemberTeamDto> result = memberRepository.searchPageComplex(condition, PageRequest.of(page, 4, sort));
+                    assertThat(result.getContent()).as(sort + " page " + page).extracting("memberId")
+                            .containsExactlyElementsOf(expected.subList(page * 4, page * 4 + 4));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MemberSortTest {
+
+    @Test
+    public void tieBreakerAppendedUnlessSortedById() {
+        assertThat(MemberSort.orderBy(Sort.by("age"))).hasSize(2);
+        assertThat(MemberSort.orderBy(Sort.by("age", "memberId"))).hasSize(2);
+        assertThat(MemberSort.orderBy(Sort.unsorted())).hasSize(1);
+        assertThat(MemberSort.needsTeamJoin(Sort.by("teamName"))).isTrue();
+        assertThat(MemberSort.needsTeamJoin(Sort.by("username"))).isFalse();
+    }
+
+    @Test
+    public void unknownPropertyRejected() {
+        assertThatThrownBy(() -> MemberSort.orderBy(Sort.by("password")))
+                .isInstanceOf(InvalidSearchException.class);
+        assertThatThrownBy(() -> MemberSort.comparator(Sort.by("password")))
+                .isInstanceOf(InvalidSearchException.class);
+    }
+
+    @Test
+    public void topNMatchesFullSort() {
+        Random random = new Random(1);
+        List<MemberTeamDto> source = new ArrayList<>();
+        for (long id = 1; id <= 5_000; id++) {
+            String teamName = random.nextInt(10) == 0 ? null : "team" + random.nextInt(5);
+            source.add(new MemberTeamDto(id, "member" + id, random.nextInt(50), null, teamName));
+        }
+        Sort sort = Sort.by(Sort.Order.asc("teamName"), Sort.Order.desc("age"));
+
+        List<Long> expected = source.stream()
+                .sorted(MemberSort.comparator(sort))
+                .skip(300)
+                .limit(20)
+                .map(MemberTeamDto::getMemberId)
+                .collect(Collectors.toList());
+        List<Long> actual = TopN.page(source, MemberSort.comparator(sort), 300, 20).stream()
+                .map(MemberTeamDto::getMemberId)
+                .collect(Collectors.toList());
+
+        assertThat(actual).containsExactlyElementsOf(expected);
+        assertThat(TopN.page(source, MemberSort.comparator(sort), 4_990, 20)).hasSize(10);
+    }
+}
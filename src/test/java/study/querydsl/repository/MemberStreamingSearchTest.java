@@ -0,0 +1,171 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class MemberStreamingSearchTest {
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    MemberStreamingSearch streamingSearch;
+
+    @BeforeEach
+    void before() {
+        List<Member> members = new ArrayList<>();
+        for (int i = 1; i <= 30; i++) {
+            members.add(new Member("member" + i, i));
+        }
+        memberRepository.saveAll(members);
+        //chunk 4 건, 스레드 1개
+        streamingSearch = new MemberStreamingSearch(memberRepository, 4, 1, 8);
+    }
+
+    @AfterEach
+    void after() {
+        streamingSearch.shutdown();
+        memberRepository.deleteAll();
+    }
+
+    @Test
+    public void emitsOnlyWhatWasRequested() throws Exception {
+        TestSubscriber subscriber = new TestSubscriber();
+        streamingSearch.search(new MemberSearchCondition()).subscribe(subscriber);
+
+        subscriber.subscription.request(5);
+        awaitUntil(() -> subscriber.items.size() >= 5);
+        assertThat(subscriber.items).hasSize(5);
+        //chunk 두 개만 조회했다.
+        assertThat(streamingSearch.stats().get("chunks")).isEqualTo(2L);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertThat(subscriber.completed.await(5, TimeUnit.SECONDS)).isTrue();
+
+        List<Integer> ages = subscriber.items.stream().map(MemberTeamDto::getAge).collect(Collectors.toList());
+        assertThat(ages).hasSize(30).isSorted();
+        assertThat(streamingSearch.stats().get("active")).isEqualTo(0);
+    }
+
+    @Test
+    public void cancelStopsEmission() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(11);
+        TestSubscriber subscriber = new TestSubscriber();
+        streamingSearch.search(condition).subscribe(subscriber);
+
+        subscriber.subscription.request(3);
+        awaitUntil(() -> subscriber.items.size() >= 3);
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(10);
+        awaitUntil(() -> Integer.valueOf(0).equals(streamingSearch.stats().get("active")));
+
+        assertThat(subscriber.items).extracting("age").containsExactly(11, 12, 13);
+        assertThat(subscriber.completed.getCount()).isEqualTo(1);
+        assertThat(streamingSearch.stats().get("active")).isEqualTo(0);
+    }
+
+    @Test
+    public void nonPositiveRequestIsError() throws Exception {
+        TestSubscriber subscriber = new TestSubscriber();
+        streamingSearch.search(new MemberSearchCondition()).subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+
+        assertThat(subscriber.completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.error).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void concurrentRequestsDeliverSerially() throws Exception {
+        TestSubscriber subscriber = new TestSubscriber();
+        streamingSearch.search(new MemberSearchCondition()).subscribe(subscriber);
+
+        //여러 스레드에서 request 를 1 씩 보내도 onNext 는 겹치지 않고 중복 없이 순서대로 온다.
+        int threads = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService requesters = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            requesters.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < 10; i++) {
+                    subscriber.subscription.request(1);
+                }
+            });
+        }
+        start.countDown();
+        requesters.shutdown();
+        assertThat(requesters.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(subscriber.completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.overlapped).isFalse();
+        List<Integer> ages = subscriber.items.stream().map(MemberTeamDto::getAge).collect(Collectors.toList());
+        assertThat(ages).hasSize(30).isSorted().doesNotHaveDuplicates();
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    static class TestSubscriber implements Flow.Subscriber<MemberTeamDto> {
+        final List<MemberTeamDto> items = new CopyOnWriteArrayList<>();
+        final CountDownLatch completed = new CountDownLatch(1);
+        volatile Flow.Subscription subscription;
+        volatile Throwable error;
+        volatile boolean overlapped;
+        private final AtomicInteger inOnNext = new AtomicInteger();
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(MemberTeamDto item) {
+            if (inOnNext.incrementAndGet() > 1) {
+                overlapped = true;
+            }
+            items.add(item);
+            inOnNext.decrementAndGet();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "study.write-behind.enabled=true",
+        "study.write-behind.flush-interval-ms=600000"
+})
+@Transactional
+class MemberWriteBehindBufferTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberWriteBehindBuffer writeBehindBuffer;
+
+    @Test
+    public void coalesceAndFlush() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        Member member1 = new Member("member1", 10, teamA);
+        em.persist(member1);
+        em.flush();
+        em.clear();
+
+        for (int age = 11; age <= 20; age++) {
+            writeBehindBuffer.updateAge(member1.getId(), age);
+        }
+        writeBehindBuffer.changeTeam(member1.getId(), teamB.getId());
+        writeBehindBuffer.flush();
+
+        Member findMember = em.find(Member.class, member1.getId());
+        assertThat(findMember.getAge()).isEqualTo(20);
+        assertThat(findMember.getTeam().getId()).isEqualTo(teamB.getId());
+
+        MemberWriteBehindBuffer.Stats stats = writeBehindBuffer.stats();
+        assertThat(stats.getPending()).isZero();
+        assertThat(stats.getCoalescingRatio()).isGreaterThanOrEqualTo(11.0);
+    }
+}
@@ -0,0 +1,97 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.fixture.MemberFixture;
+
+import javax.persistence.EntityManager;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 대량 조회 시 영속성 컨텍스트 관리 비용 비교.
+ * 일반 트랜잭션(스냅샷 + flush 시 dirty checking) / readOnly 트랜잭션 + 힌트 / StatelessSession 스트리밍.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class ReadOnlySearchBenchmarkTest {
+
+    static final int MEMBERS = 200_000;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @BeforeEach
+    void before() {
+        MemberFixture.seed(jdbcTemplate, MEMBERS, 10);
+    }
+
+    @AfterEach
+    void after() {
+        MemberFixture.clear(jdbcTemplate);
+    }
+
+    @Test
+    public void managedVsReadOnlyVsStateless() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        LongSupplier managed = () -> tx.execute(status -> {
+            int size = em.createQuery("select m from Member m", Member.class).getResultList().size();
+            em.flush();
+            return (long) size;
+        });
+        LongSupplier readOnly = () -> (long) memberJpaRepository.searchMember(condition).size();
+        LongSupplier stateless = () -> {
+            AtomicLong ages = new AtomicLong();
+            return memberJpaRepository.scanMembers(condition, m -> ages.addAndGet(m.getAge()));
+        };
+
+        //warm up
+        managed.getAsLong();
+        readOnly.getAsLong();
+        stateless.getAsLong();
+
+        assertThat(measure("managed", managed)).isEqualTo(MEMBERS);
+        assertThat(measure("read-only", readOnly)).isEqualTo(MEMBERS);
+        assertThat(measure("stateless", stateless)).isEqualTo(MEMBERS);
+    }
+
+    private static long measure(String name, LongSupplier read) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long allocated = threads.getThreadAllocatedBytes(threadId);
+        long cpu = threads.getCurrentThreadCpuTime();
+        long start = System.nanoTime();
+        long rows = read.getAsLong();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        long cpuMs = (threads.getCurrentThreadCpuTime() - cpu) / 1_000_000;
+        long allocatedMb = (threads.getThreadAllocatedBytes(threadId) - allocated) / (1024 * 1024);
+
+        System.out.println(name + " : rows = " + rows + ", elapsed = " + elapsedMs + "ms, cpu = " + cpuMs
+                + "ms, allocated = " + allocatedMb + "MB");
+        return rows;
+    }
+}
@@ -0,0 +1,233 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "study.shard.enabled=true",
+        "study.shard.urls=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1,jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1,jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1"
+})
+class ShardedMemberRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    ShardedMemberRepository shardedMemberRepository;
+
+    @Autowired
+    ShardRouter shardRouter;
+
+    @Autowired
+    ShardSynchronizer shardSynchronizer;
+
+    List<Team> teams = new ArrayList<>();
+    List<MemberTeamDto> members = new ArrayList<>();
+
+    //member 는 기본 DB 에 JPA 로 저장하고 샤드는 ShardSynchronizer 로 채운다.
+    @BeforeEach
+    void before() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int i = 0; i < 5; i++) {
+                Team team = new Team("team" + (4 - i));
+                em.persist(team);
+                teams.add(team);
+            }
+            for (int i = 1; i <= 200; i++) {
+                Team team = i % 7 == 0 ? null : teams.get(i % teams.size());
+                Member member = new Member("member" + (i % 50), i % 30, team);
+                em.persist(member);
+                members.add(new MemberTeamDto(member.getId(), member.getUsername(), member.getAge(),
+                        team != null ? team.getId() : null, team != null ? team.getName() : null));
+            }
+        });
+        shardSynchronizer.resync();
+    }
+
+    @AfterEach
+    void after() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+        shardSynchronizer.resync();
+    }
+
+    @Test
+    public void pagesMatchSingleSortedList() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(5);
+
+        for (Sort sort : List.of(Sort.unsorted(), Sort.by(Sort.Order.desc("age")),
+                Sort.by("username", "age"), Sort.by(Sort.Order.desc("username")))) {
+            List<Long> expected = members.stream()
+                    .filter(dto -> dto.getAge() >= 5)
+                    .sorted(MemberSort.comparator(sort))
+                    .map(MemberTeamDto::getMemberId)
+                    .collect(Collectors.toList());
+
+            for (int page = 0; page * 20 < expected.size(); page++) {
+                Page<MemberTeamDto> result = shardedMemberRepository.searchPageSimple(condition, PageRequest.of(page, 20, sort));
+
+                assertThat(result.getTotalElements()).isEqualTo(expected.size());
+                assertThat(result.getContent()).extracting("memberId")
+                        .containsExactlyElementsOf(expected.subList(page * 20, Math.min(expected.size(), page * 20 + 20)));
+            }
+        }
+    }
+
+    @Test
+    public void teamNameTargetsOneShard() {
+        Team team = teams.get(2);
+        assertThat(shardRouter.shardsForTeams(List.of(team.getId()))).hasSize(1);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(team.getName());
+
+        List<MemberTeamDto> result = shardedMemberRepository.search(condition);
+
+        assertThat(result).isNotEmpty();
+        assertThat(result).allMatch(dto -> dto.getTeamId().equals(team.getId()) && dto.getTeamName().equals(team.getName()));
+        assertThat(result).hasSize((int) members.stream().filter(dto -> team.getId().equals(dto.getTeamId())).count());
+    }
+
+    //팀 전체 순위를 SQL 에 넣지 않으므로 teamName 정렬은 팀 이름 조건이 있을 때만 된다.
+    @Test
+    public void teamNameSortNeedsTeamNameCondition() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        assertThatThrownBy(() -> shardedMemberRepository.searchPageSimple(condition, PageRequest.of(0, 10, Sort.by("teamName"))))
+                .isInstanceOf(InvalidSearchException.class);
+
+        Team team = teams.get(1);
+        condition.setTeamName(team.getName());
+        List<Long> expected = members.stream()
+                .filter(dto -> team.getId().equals(dto.getTeamId()))
+                .sorted(MemberSort.comparator(Sort.by("teamName", "age")))
+                .map(MemberTeamDto::getMemberId)
+                .limit(10)
+                .collect(Collectors.toList());
+        assertThat(shardedMemberRepository.searchPageSimple(condition, PageRequest.of(0, 10, Sort.by("teamName", "age"))).getContent())
+                .extracting("memberId").containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    public void unknownTeamNameIsEmpty() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("없는팀");
+
+        assertThat(shardedMemberRepository.searchPageComplex(condition, PageRequest.of(0, 10)).getTotalElements()).isZero();
+    }
+
+    @Test
+    public void sliceAcrossShards() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        List<Long> ids = members.stream().map(MemberTeamDto::getMemberId).sorted().collect(Collectors.toList());
+
+        Slice<MemberTeamDto> last = shardedMemberRepository.searchSlice(condition, PageRequest.of(9, 20, Sort.by("memberId")));
+        assertThat(last.getContent()).extracting("memberId").first().isEqualTo(ids.get(180));
+        assertThat(last.hasNext()).isFalse();
+    }
+
+    @Test
+    public void searchAfterAcrossShards() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+        List<Long> expected = members.stream()
+                .filter(dto -> dto.getAge() >= 10)
+                .map(MemberTeamDto::getMemberId)
+                .sorted()
+                .collect(Collectors.toList());
+
+        List<Long> ids = new ArrayList<>();
+        Long lastMemberId = null;
+        List<MemberTeamDto> chunk;
+        do {
+            chunk = shardedMemberRepository.searchAfter(condition, lastMemberId, 30);
+            chunk.forEach(dto -> ids.add(dto.getMemberId()));
+            if (!chunk.isEmpty()) {
+                lastMemberId = chunk.get(chunk.size() - 1).getMemberId();
+            }
+        } while (chunk.size() == 30);
+
+        assertThat(ids).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    public void includeArchivedIsRejected() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setIncludeArchived(true);
+
+        assertThatThrownBy(() -> shardedMemberRepository.search(condition))
+                .isInstanceOf(InvalidSearchException.class);
+    }
+
+    //커밋된 JPA 쓰기는 이벤트로 샤드에 옮겨진다. (비동기)
+    @Test
+    public void jpaWritesReachShards() throws InterruptedException {
+        Team moved = teams.get(0);
+        MemberTeamDto first = members.get(0);
+        MemberTeamDto removed = members.get(1);
+        MemberSearchCondition byName = new MemberSearchCondition();
+        byName.setUsername("new-member");
+
+        Long newId = new TransactionTemplate(transactionManager).execute(status -> {
+            em.find(Member.class, first.getMemberId()).changeTeam(em.find(Team.class, moved.getId()));
+            em.remove(em.find(Member.class, removed.getMemberId()));
+            Member member = new Member("new-member", 20, em.find(Team.class, moved.getId()));
+            em.persist(member);
+            return member.getId();
+        });
+
+        BooleanSupplier synced = () -> {
+            List<MemberTeamDto> all = shardedMemberRepository.search(new MemberSearchCondition());
+            return all.stream().anyMatch(dto -> dto.getMemberId().equals(newId))
+                    && all.stream().noneMatch(dto -> dto.getMemberId().equals(removed.getMemberId()))
+                    && all.stream().anyMatch(dto -> dto.getMemberId().equals(first.getMemberId())
+                    && moved.getId().equals(dto.getTeamId()));
+        };
+        awaitUntil(synced);
+
+        assertThat(synced.getAsBoolean()).isTrue();
+        assertThat(shardedMemberRepository.search(byName)).extracting("memberId").containsExactly(newId);
+        //row 는 새 팀의 샤드에만 있다.
+        for (ShardRouter.Shard shard : shardRouter.all()) {
+            Long count = shard.getJdbcTemplate().getJdbcTemplate().queryForObject(
+                    "select count(*) from member where member_id = ?", Long.class, first.getMemberId());
+            assertThat(count).isEqualTo(shard == shardRouter.shardFor(moved.getId(), first.getMemberId()) ? 1L : 0L);
+        }
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SingleFlightTest {
+
+    @Test
+    public void concurrentSameKeyRunsOnce() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(5_000);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Integer> leader = CompletableFuture.supplyAsync(() ->
+                singleFlight.execute("key", () -> {
+                    calls.incrementAndGet();
+                    leaderStarted.countDown();
+                    await(release);
+                    return 42;
+                }));
+        leaderStarted.await(5, TimeUnit.SECONDS);
+
+        CompletableFuture<Integer> follower = CompletableFuture.supplyAsync(() ->
+                singleFlight.execute("key", () -> {
+                    calls.incrementAndGet();
+                    return -1;
+                }));
+        while (singleFlight.getCoalesced() == 0) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo(42);
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo(42);
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(singleFlight.getInFlight()).isZero();
+    }
+
+    @Test
+    public void followerRunsItselfAfterMaxWait() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>(10);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture.runAsync(() -> singleFlight.execute("key", () -> {
+            await(release);
+            return 1;
+        }));
+        while (singleFlight.getInFlight() == 0) {
+            Thread.onSpinWait();
+        }
+
+        assertThat(singleFlight.execute("key", () -> 2)).isEqualTo(2);
+        assertThat(singleFlight.getWaitTimeouts()).isEqualTo(1);
+        release.countDown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}